@@ -1,11 +1,18 @@
 package c482lte;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import controller.MainScreenController;
+import controller.ScreenCache;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 import model.Inventory;
+import model.InventoryJournal;
+import model.JdbcInventoryRepository;
 
 /**
  * Application class for Inventory Management System.
@@ -13,20 +20,87 @@ import model.Inventory;
  * @author Leonard T. Erwine
  */
 public class IMS extends Application {
+    /**
+     * The name of the system property which specifies the path of the inventory journal file.
+     */
+    public static final String PROPERTY_JOURNAL_PATH = "ims.journal";
+    
+    /**
+     * The name of the system property which specifies the path of the inventory snapshot file.
+     */
+    public static final String PROPERTY_SNAPSHOT_PATH = "ims.snapshot";
+    
+    /**
+     * The name of the system property which specifies the JDBC URL of a database to store the inventory in, instead of the journal. If the
+     * property is set but empty, an embedded Derby database is used.
+     */
+    public static final String PROPERTY_JDBC_URL = "ims.jdbc.url";
+    
+    private static InventoryJournal journal = null;
+    private static JdbcInventoryRepository repository = null;
     
     @Override
     public void start(Stage stage) throws Exception {
-        Parent root = FXMLLoader.load(getClass().getResource("/view/MainScreen.fxml"));
-        
-        Scene scene = new Scene(root);
-        stage.setScene(scene);
+        // Stock adjustments can come from other threads, so their change notifications are delivered in batches on the FX thread.
+        Inventory.setStockChangeExecutor(Platform::runLater);
+        ScreenCache.show(stage, MainScreenController.VIEW_PATH_MAINSCREEN, null);
         stage.show();
+        // The edit screens are loaded while the main screen is showing, so that they open quickly the first time as well.
+        ScreenCache.warmUp(MainScreenController.VIEW_PATH_EDITPARTSCREEN, MainScreenController.VIEW_PATH_EDITPRODUCTSCREEN);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (journal != null) {
+            InventoryJournal closing = journal;
+            journal = null;
+            try {
+                // Saving a snapshot on exit keeps the journal short, so the next start-up has little to replay.
+                closing.checkpoint(getSnapshotPath());
+            } finally {
+                closing.close();
+            }
+        }
+        if (repository != null) {
+            JdbcInventoryRepository closing = repository;
+            repository = null;
+            try {
+                Inventory.setRepository(null);
+            } finally {
+                closing.close();
+            }
+        }
     }
 
     /**
      * @param args the command line arguments
      */
     public static void main(String[] args) {
+        String jdbcUrl = System.getProperty(PROPERTY_JDBC_URL);
+        if (jdbcUrl != null) {
+            try {
+                repository = JdbcInventoryRepository.open((jdbcUrl.trim().isEmpty()) ? JdbcInventoryRepository.DEFAULT_URL : jdbcUrl);
+                Inventory.setRepository(repository);
+            } catch (IOException ex) {
+                Logger.getLogger(IMS.class.getName()).log(Level.SEVERE, "Unable to open inventory database; changes will not be saved.", ex);
+            }
+        } else {
+            try {
+                journal = InventoryJournal.open(Paths.get(System.getProperty(PROPERTY_JOURNAL_PATH, "inventory.journal")), getSnapshotPath());
+            } catch (IOException ex) {
+                Logger.getLogger(IMS.class.getName()).log(Level.SEVERE, "Unable to open inventory journal; changes will not be saved.", ex);
+            }
+        }
+        // Sample data is only loaded the first time the application is run.
+        if (Inventory.getAllParts().isEmpty() && Inventory.getAllProducts().isEmpty())
+            addSampleData();
+        
+        launch(args);
+    }
+    
+    private static Path getSnapshotPath() { return Paths.get(System.getProperty(PROPERTY_SNAPSHOT_PATH, "inventory.snapshot")); }
+    
+    private static void addSampleData() {
         model.Product product = new model.Product(-1, "Centipede", 25.78, 300, 50, 300);
         Inventory.addProduct(product);
         model.Part centipedeHeadPart = new model.Outsourced(-1, "OEM Centipede Head", 2.99, 300, 50, 300, "God");
@@ -55,8 +129,6 @@ public class IMS extends Application {
         product.addAssociatedPart(zombificationStinger);
         product.addAssociatedPart(bionicMediumLeg);
         product.addAssociatedPart(homeBaseCommunicationAntennae);
-        
-        launch(args);
     }
     
 }
@@ -23,7 +23,7 @@ import model.ModelHelper;
  *
  * @author Leonard T. Erwine
  */
-public class EditPartController implements Initializable {
+public class EditPartController implements Initializable, ResettableController {
     private int currentPartId = -1;
     private String lastCompanyOrMachine = "";
     
@@ -236,7 +236,18 @@ public class EditPartController implements Initializable {
      * @param rb The resources used to localize the root object, or <tt>null</tt> if the root object was not localized.
      */
     @Override
-    public void initialize(URL url, ResourceBundle rb) {
+    public void initialize(URL url, ResourceBundle rb) { reset(); }
+    
+    @Override
+    public void reset() {
+        currentPartId = -1;
+        lastCompanyOrMachine = "";
+        editPartLabel.setText("Add Part");
+        idTextField.setText("");
+        nameTextField.setText("");
+        priceTextField.setText("");
+        maxTextField.setText("");
+        companyOrMachineTextField.setText("");
         inHouseRadioButton.selectedProperty().setValue(true);
         outsourcedRadioButton.selectedProperty().setValue(false);
         companyOrMachineLabel.setText(LABELTEXT_MACHINEID);
@@ -3,12 +3,21 @@ package controller;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -17,23 +26,39 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.StageStyle;
 import javafx.util.Pair;
+import model.InventorySnapshot;
 import model.ModelHelper;
+import model.PagedList;
 
 /**
  * FXML Controller class for Adding and Modifying Products
  *
  * @author Leonard T. Erwine
  */
-public class EditProductController implements Initializable {
+public class EditProductController implements Initializable, ResettableController {
     private int currentProductId = -1;
-    private final ObservableList<model.Part> availableParts = FXCollections.observableArrayList();
+    private final HashSet<model.Part> selectedPartSet = new HashSet<>();
+    // Available parts are read from the inventory as they are shown, rather than copying every part that hasn't been selected.
+    private final AvailablePartSource availablePartSource = new AvailablePartSource(selectedPartSet);
+    private final PagedList<model.Part> availableParts = new PagedList<>(availablePartSource);
+    // Set when parts are moved while search results are shown, since their place among the available parts isn't known then.
+    private boolean availablePartsStale = false;
+    private final ListChangeListener<model.Part> inventoryListener = (ListChangeListener.Change<? extends model.Part> change) -> {
+        if (availablePartsStale) {
+            availableParts.refresh(availablePartSource::reindex);
+            availablePartsStale = false;
+        } else
+            availablePartSource.update(change, availableParts);
+    };
     private boolean showingSearchResults = false;
+    // Searches run in the background; starting another one cancels the one before it.
+    private final QueryExecutor searchQuery = new QueryExecutor();
     
     @FXML
     private Label editProductLabel;
@@ -66,34 +91,37 @@ public class EditProductController implements Initializable {
     private TableView<model.Part> unselectedPartsTableView;
 
     @FXML
-    private TableColumn<model.Part, Integer> uPartIdTableColumn;
+    private TableColumn<model.Part, Number> uPartIdTableColumn;
 
     @FXML
     private TableColumn<model.Part, String> uPartNameTableColumn;
 
     @FXML
-    private TableColumn<model.Part, Integer> uInventoryLevelTableColumn;
+    private TableColumn<model.Part, Number> uInventoryLevelTableColumn;
 
     @FXML
-    private TableColumn<model.Part, Double> uPricePerUnitTableColumn;
+    private TableColumn<model.Part, Number> uPricePerUnitTableColumn;
 
     @FXML
     private Label noMatchesLabel;
+
+    @FXML
+    private ProgressIndicator searchProgressIndicator;
     
     @FXML
     private TableView<model.Part> selectedPartsTableView;
 
     @FXML
-    private TableColumn<model.Part, Integer> sPartIdTableColumn;
+    private TableColumn<model.Part, Number> sPartIdTableColumn;
 
     @FXML
     private TableColumn<model.Part, String> sPartNameTableColumn;
 
     @FXML
-    private TableColumn<model.Part, Integer> sInventoryLevelTableColumn;
+    private TableColumn<model.Part, Number> sInventoryLevelTableColumn;
 
     @FXML
-    private TableColumn<model.Part, Double> sPricePerUnitTableColumn;
+    private TableColumn<model.Part, Number> sPricePerUnitTableColumn;
 
     @FXML
     void cancelButtonClick(ActionEvent event) {
@@ -106,6 +134,11 @@ public class EditProductController implements Initializable {
     @FXML
     void onSearchPartClick(ActionEvent event) {
         if (showingSearchResults) {
+            searchQuery.cancel();
+            if (availablePartsStale) {
+                availableParts.refresh(availablePartSource::reindex);
+                availablePartsStale = false;
+            }
             unselectedPartsTableView.setItems(availableParts);
             showingSearchResults = false;
             unselectedPartsTableView.setVisible(true);
@@ -121,20 +154,24 @@ public class EditProductController implements Initializable {
             return;
         }
         
-        ObservableList<model.Part> searchResults = FXCollections.observableArrayList();
-        availableParts.stream().filter((part) -> (part.getName().toLowerCase().contains(searchText))).forEachOrdered((part) -> searchResults.add(part));
-        
-        if (searchResults.isEmpty()) {
-            noMatchesLabel.setVisible(true);
-            unselectedPartsTableView.setVisible(false);
-        } else {
-            noMatchesLabel.setVisible(false);
-            unselectedPartsTableView.setVisible(true);
-            unselectedPartsTableView.setItems(searchResults);
-        }
-        searchTextField.setDisable(true);
-        showingSearchResults = true;
-        partsSearchButton.setText("Show All");
+        // The progress indicator takes the place of the table until the results are ready.
+        noMatchesLabel.setVisible(false);
+        unselectedPartsTableView.setVisible(false);
+        searchQuery.run((InventorySnapshot snapshot) -> snapshot.searchParts(searchText), (List<model.Part> matches) -> {
+            // Available parts are all inventory parts which have not been selected, so the selection is left out of the search results.
+            ObservableList<model.Part> searchResults = FXCollections.observableArrayList();
+            matches.stream().filter((part) -> !selectedPartSet.contains(part)).forEachOrdered((part) -> searchResults.add(part));
+            
+            if (searchResults.isEmpty())
+                noMatchesLabel.setVisible(true);
+            else {
+                unselectedPartsTableView.setVisible(true);
+                unselectedPartsTableView.setItems(searchResults);
+            }
+            searchTextField.setDisable(true);
+            showingSearchResults = true;
+            partsSearchButton.setText("Show All");
+        });
     }
 
     @FXML
@@ -236,7 +273,8 @@ public class EditProductController implements Initializable {
     
     @FXML
     void addPartButtonClick(ActionEvent event) {
-        // Get part to be added.
+        // Get part to be added, and its index so it doesn't have to be looked for again.
+        int index = unselectedPartsTableView.getSelectionModel().getSelectedIndex();
         model.Part part = unselectedPartsTableView.getSelectionModel().getSelectedItem();
         if (part == null) {
             ModelHelper.showNotificationDialog("No selection", "Part must be selected", "You must select a part before it can be added.",
@@ -264,15 +302,20 @@ public class EditProductController implements Initializable {
                 return;
         }
         
-        ObservableList<model.Part> items = unselectedPartsTableView.getItems();
-        items.remove(part);
+        selectedPartSet.add(part);
         selectedPartsTableView.getItems().add(part);
-        if (showingSearchResults)
-            availableParts.remove(part);
+        if (showingSearchResults) {
+            unselectedPartsTableView.getItems().remove(index);
+            availablePartsStale = true;
+        } else if (!availablePartsStale) {
+            availablePartSource.select(index);
+            availableParts.itemRemoved(index, part);
+        }
     }
     
     @FXML
     void deletePartButtonClick(ActionEvent event) {
+        int index = selectedPartsTableView.getSelectionModel().getSelectedIndex();
         model.Part part = selectedPartsTableView.getSelectionModel().getSelectedItem();
         if (part == null) {
             ModelHelper.showNotificationDialog("No selection", "Part must be selected", "You must select a part before it can be removed.", 
@@ -285,10 +328,16 @@ public class EditProductController implements Initializable {
                     Alert.AlertType.WARNING);
             return;
         }
-        items.remove(part);
-        unselectedPartsTableView.getItems().add(part);
-        if (showingSearchResults)
-            availableParts.add(part);
+        items.remove(index);
+        selectedPartSet.remove(part);
+        if (showingSearchResults) {
+            unselectedPartsTableView.getItems().add(part);
+            availablePartsStale = true;
+        } else if (!availablePartsStale) {
+            int availableIndex = availablePartSource.deselect(part);
+            if (availableIndex >= 0)
+                availableParts.itemAdded(availableIndex);
+        }
     }
     
     /**
@@ -299,17 +348,58 @@ public class EditProductController implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        sInventoryLevelTableColumn.setCellValueFactory(new PropertyValueFactory<>(ModelHelper.PROP_STOCK));
-        sPartIdTableColumn.setCellValueFactory(new PropertyValueFactory<>(ModelHelper.PROP_ID));
-        sPartNameTableColumn.setCellValueFactory(new PropertyValueFactory<>(ModelHelper.PROP_NAME));
-        sPricePerUnitTableColumn.setCellValueFactory(new PropertyValueFactory<>(ModelHelper.PROP_PRICE));
-        uInventoryLevelTableColumn.setCellValueFactory(new PropertyValueFactory<>(ModelHelper.PROP_STOCK));
-        uPartIdTableColumn.setCellValueFactory(new PropertyValueFactory<>(ModelHelper.PROP_ID));
-        uPartNameTableColumn.setCellValueFactory(new PropertyValueFactory<>(ModelHelper.PROP_NAME));
-        uPricePerUnitTableColumn.setCellValueFactory(new PropertyValueFactory<>(ModelHelper.PROP_PRICE));
-        model.Inventory.getAllParts().forEach((part) -> availableParts.add(part));
+        // Cells observe the part properties directly, so they don't use reflection and they show changes as soon as they are made.
+        sInventoryLevelTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().stockProperty());
+        sPartIdTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().idProperty());
+        sPartNameTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, String> cell) -> cell.getValue().nameProperty());
+        sPricePerUnitTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().priceProperty());
+        uInventoryLevelTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().stockProperty());
+        uPartIdTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().idProperty());
+        uPartNameTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, String> cell) -> cell.getValue().nameProperty());
+        uPricePerUnitTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().priceProperty());
+        model.Inventory.getAllParts().addListener(new WeakListChangeListener<>(inventoryListener));
+        // Paged lists are read-only, and sorting one would read every page, so only search results can be sorted.
+        unselectedPartsTableView.setSortPolicy((TableView<model.Part> tableView) -> !(tableView.getItems() instanceof PagedList) &&
+                TableView.DEFAULT_SORT_POLICY.call(tableView));
+        searchProgressIndicator.visibleProperty().bind(searchQuery.runningProperty());
+        // Typing again while a search is running means its results are no longer wanted.
+        searchTextField.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (searchQuery.isRunning()) {
+                searchQuery.cancel();
+                unselectedPartsTableView.setVisible(true);
+            }
+        });
+        NameCompletion.attach(searchTextField, (String text) -> {
+            // Ask for extra matches, since any that have already been selected are left out.
+            return model.Inventory.completePartName(text, NameCompletion.MAX_SUGGESTIONS + selectedPartSet.size()).stream()
+                    .filter((model.Part p) -> !selectedPartSet.contains(p)).map((model.Part p) -> p.getName()).distinct()
+                    .limit(NameCompletion.MAX_SUGGESTIONS).collect(Collectors.toList());
+        });
+        reset();
+    }
+    
+    @Override
+    public void reset() {
+        searchQuery.cancel();
+        currentProductId = -1;
+        editProductLabel.setText("Add Product");
+        idTextField.setText("");
+        nameTextField.setText("");
+        priceTextField.setText("");
+        maxTextField.setText("");
         inventoryTextField.setText("0");
         minTextField.setText("1");
+        showingSearchResults = false;
+        searchTextField.setDisable(false);
+        searchTextField.setText("");
+        partsSearchButton.setText("Search");
+        noMatchesLabel.setVisible(false);
+        unselectedPartsTableView.setVisible(true);
+        selectedPartSet.clear();
+        availableParts.refresh(availablePartSource::reindex);
+        availablePartsStale = false;
+        unselectedPartsTableView.setItems(availableParts);
+        selectedPartsTableView.setItems(FXCollections.observableArrayList());
     }
     
     /**
@@ -329,15 +419,257 @@ public class EditProductController implements Initializable {
         priceTextField.setText(String.valueOf(product.getPrice()));
         maxTextField.setText(String.valueOf(product.getMax()));
         minTextField.setText(String.valueOf(product.getMin()));
-        availableParts.clear();
-        ObservableList<model.Part> selectedParts = FXCollections.observableArrayList();
-        model.Inventory.getAllParts().forEach((part) -> {
-            if (ModelHelper.isAssociatedPartAdded(part, product))
-                selectedParts.add(part);
-            else
-                availableParts.add(part);
-        });
+        ObservableList<model.Part> selectedParts = FXCollections.observableArrayList(product.getAllAssociatedParts());
+        selectedPartSet.clear();
+        selectedPartSet.addAll(selectedParts);
+        availableParts.refresh(availablePartSource::reindex);
+        availablePartsStale = false;
         unselectedPartsTableView.setItems(availableParts);
         selectedPartsTableView.setItems(selectedParts);
     }
+    
+    /**
+     * Reads the inventory parts which have not been selected, in the order that they appear in the inventory.
+     * 
+     * Each inventory position has a flag which is set when the part at that position is selected, and a Fenwick tree over the flags counts
+     * the available parts before any position. Finding the inventory position of an available part, or the other way around, takes
+     * O(log n), so moving a part in or out of the selection doesn't require reading the inventory again.
+     */
+    private static final class AvailablePartSource implements PagedList.PageSource<model.Part> {
+        private final HashSet<model.Part> selectedParts;
+        // The inventory parts as of the last change that was applied. Snapshot lists don't change, so the available parts as they were before
+        // a change can still be read while the paged list is told about it.
+        private List<model.Part> inventoryParts = Collections.emptyList();
+        private boolean[] selected = new boolean[16];
+        // The tree is indexed from 1; node i holds the number of available parts at positions i - (i & -i) to i - 1.
+        private int[] tree = new int[17];
+        private int size = 0;
+        // The inventory positions of the selected parts, so a part that is removed from the selection can be found without a scan.
+        private final HashMap<model.Part, Integer> selectedPositions = new HashMap<>();
+        
+        AvailablePartSource(HashSet<model.Part> selectedParts) { this.selectedParts = selectedParts; }
+        
+        /**
+         * Finds the positions of the selected parts in the inventory. This must be called when the selection is replaced.
+         */
+        void reindex() {
+            inventoryParts = model.Inventory.getSnapshot().getParts();
+            size = 0;
+            ensureCapacity(inventoryParts.size());
+            size = inventoryParts.size();
+            for (int i = 0; i < size; i++)
+                selected[i] = !selectedParts.isEmpty() && selectedParts.contains(inventoryParts.get(i));
+            rebuild();
+            recordSelectedPositions();
+        }
+        
+        /**
+         * Applies a change to the inventory list, reading only the parts that were added.
+         * 
+         * A single part that is added, removed or replaced is passed on to the paged list as it is. Anything else is applied in full and the paged list
+         * is refreshed once.
+         * 
+         * @param change The change to the inventory list.
+         * @param list The paged list of available parts.
+         */
+        void update(ListChangeListener.Change<? extends model.Part> change, PagedList<model.Part> list) {
+            if (change.next() && !change.wasPermutated() && !change.wasUpdated() && change.getAddedSize() <= 1 && change.getRemovedSize() <= 1) {
+                int from = change.getFrom();
+                model.Part removedPart = (change.wasRemoved()) ? change.getRemoved().get(0) : null;
+                model.Part addedPart = (change.wasAdded()) ? change.getAddedSubList().get(0) : null;
+                if (!change.next()) {
+                    inventoryParts = model.Inventory.getSnapshot().getParts();
+                    if (removedPart == null) {
+                        insert(from, addedPart);
+                        if (!selected[from])
+                            list.itemAdded(countAvailableBefore(from));
+                        return;
+                    }
+                    boolean wasSelected = selected[from];
+                    int availableIndex = countAvailableBefore(from);
+                    if (addedPart == null) {
+                        remove(from, removedPart);
+                        if (!wasSelected)
+                            list.itemRemoved(availableIndex, removedPart);
+                        return;
+                    }
+                    // A part that is replaced keeps its position, so only its own flag changes.
+                    if (wasSelected)
+                        selectedPositions.remove(removedPart);
+                    boolean isSelected = selectedParts.contains(addedPart);
+                    if (isSelected)
+                        selectedPositions.put(addedPart, from);
+                    if (isSelected != wasSelected) {
+                        selected[from] = isSelected;
+                        add(from, (isSelected) ? -1 : 1);
+                    }
+                    if (!wasSelected) {
+                        if (isSelected)
+                            list.itemRemoved(availableIndex, removedPart);
+                        else
+                            list.itemReplaced(availableIndex, removedPart);
+                    } else if (!isSelected)
+                        list.itemAdded(availableIndex);
+                    return;
+                }
+            }
+            list.refresh(() -> {
+                change.reset();
+                while (change.next()) {
+                    int from = change.getFrom();
+                    if (change.wasPermutated()) {
+                        boolean[] old = Arrays.copyOfRange(selected, from, change.getTo());
+                        for (int i = from; i < change.getTo(); i++)
+                            selected[change.getPermutation(i)] = old[i - from];
+                    } else if (!change.wasUpdated()) {
+                        int removed = change.getRemovedSize();
+                        int added = change.getAddedSize();
+                        int oldSize = size;
+                        ensureCapacity(oldSize - removed + added);
+                        System.arraycopy(selected, from + removed, selected, from + added, oldSize - from - removed);
+                        size = oldSize - removed + added;
+                        for (int i = 0; i < added; i++)
+                            selected[from + i] = selectedParts.contains(change.getAddedSubList().get(i));
+                    }
+                }
+                inventoryParts = model.Inventory.getSnapshot().getParts();
+                rebuild();
+                recordSelectedPositions();
+            });
+        }
+        
+        /**
+         * Records that an available part has been added to the selection.
+         * 
+         * @param availableIndex The index of the part among the available parts.
+         */
+        void select(int availableIndex) {
+            int position = findAvailable(availableIndex);
+            selected[position] = true;
+            add(position, -1);
+            selectedPositions.put(inventoryParts.get(position), position);
+        }
+        
+        /**
+         * Records that a part has been removed from the selection.
+         * 
+         * @param part The part that is available again.
+         * @return The index of the part among the available parts, or -1 if the part is not in the inventory.
+         */
+        int deselect(model.Part part) {
+            Integer position = selectedPositions.remove(part);
+            if (position == null)
+                return -1;
+            selected[position] = false;
+            add(position, 1);
+            return countAvailableBefore(position);
+        }
+        
+        @Override
+        public int getCount() { return size - selectedPositions.size(); }
+        
+        @Override
+        public List<model.Part> getPage(int offset, int count) {
+            ArrayList<model.Part> page = new ArrayList<>(count);
+            for (int i = findAvailable(offset); i < size && page.size() < count; i++) {
+                if (!selected[i])
+                    page.add(inventoryParts.get(i));
+            }
+            return page;
+        }
+        
+        private void insert(int position, model.Part part) {
+            boolean isSelected = selectedParts.contains(part);
+            ensureCapacity(size + 1);
+            if (position == size) {
+                // Appending only needs the one new node, whose range ends at the new position.
+                selected[size++] = isSelected;
+                int node = size;
+                tree[node] = ((isSelected) ? 0 : 1) + countAvailableBefore(node - 1) - countAvailableBefore(node - (node & -node));
+            } else {
+                System.arraycopy(selected, position, selected, position + 1, size - position);
+                selected[position] = isSelected;
+                size++;
+                shiftPositions(position, 1);
+                rebuild();
+            }
+            if (isSelected)
+                selectedPositions.put(part, position);
+        }
+        
+        private void remove(int position, model.Part part) {
+            if (selected[position])
+                selectedPositions.remove(part);
+            if (position == size - 1) {
+                // Nodes before the last position don't include it, so they are still correct.
+                size--;
+                return;
+            }
+            System.arraycopy(selected, position + 1, selected, position, size - position - 1);
+            size--;
+            shiftPositions(position, -1);
+            rebuild();
+        }
+        
+        private void shiftPositions(int from, int delta) {
+            for (Map.Entry<model.Part, Integer> entry : selectedPositions.entrySet()) {
+                if (entry.getValue() >= from)
+                    entry.setValue(entry.getValue() + delta);
+            }
+        }
+        
+        private void ensureCapacity(int capacity) {
+            if (capacity <= selected.length)
+                return;
+            int length = Math.max(capacity, selected.length << 1);
+            selected = Arrays.copyOf(selected, length);
+            tree = Arrays.copyOf(tree, length + 1);
+        }
+        
+        private void rebuild() {
+            // Builds the tree in one pass: each node adds its total to the next node whose range includes it.
+            for (int i = 1; i <= size; i++)
+                tree[i] = (selected[i - 1]) ? 0 : 1;
+            for (int i = 1; i <= size; i++) {
+                int parent = i + (i & -i);
+                if (parent <= size)
+                    tree[parent] += tree[i];
+            }
+        }
+        
+        private void recordSelectedPositions() {
+            // Only the selected parts are read from the inventory.
+            selectedPositions.clear();
+            for (int i = 0; i < size; i++) {
+                if (selected[i])
+                    selectedPositions.put(inventoryParts.get(i), i);
+            }
+        }
+        
+        private void add(int position, int delta) {
+            for (int i = position + 1; i <= size; i += i & -i)
+                tree[i] += delta;
+        }
+        
+        private int countAvailableBefore(int position) {
+            int count = 0;
+            for (int i = position; i > 0; i -= i & -i)
+                count += tree[i];
+            return count;
+        }
+        
+        private int findAvailable(int availableIndex) {
+            // Walks down the tree to the last position which has no more than availableIndex available parts before it.
+            int position = 0;
+            int remaining = availableIndex;
+            for (int step = Integer.highestOneBit(Math.max(size, 1)); step > 0; step >>= 1) {
+                int next = position + step;
+                if (next <= size && tree[next] <= remaining) {
+                    position = next;
+                    remaining -= tree[next];
+                }
+            }
+            return position;
+        }
+    }
 }
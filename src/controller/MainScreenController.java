@@ -4,29 +4,36 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
+import javafx.util.Pair;
 import model.Inventory;
+import model.InventorySnapshot;
 import model.ModelHelper;
 
 /**
@@ -34,7 +41,7 @@ import model.ModelHelper;
  * 
  * @author Leonard T. Erwine
  */
-public class MainScreenController implements Initializable {
+public class MainScreenController implements Initializable, ResettableController {
     /**
      * The path of the View for Modify Part and Add Part.
      */
@@ -52,6 +59,10 @@ public class MainScreenController implements Initializable {
     
     private boolean showingProductSearchResults = false;
     private boolean showingPartSearchResults = false;
+    // Searches and where-used checks run in the background; starting another one cancels the one before it.
+    private final QueryExecutor partsQuery = new QueryExecutor();
+    private final QueryExecutor productsQuery = new QueryExecutor();
+    private final QueryExecutor deleteQuery = new QueryExecutor();
     
     /**
      * Text field for searching parts
@@ -63,16 +74,16 @@ public class MainScreenController implements Initializable {
     private TableView<model.Part> partsTableView;
 
     @FXML
-    private TableColumn<model.Part, Integer> partIdTableColumn;
+    private TableColumn<model.Part, Number> partIdTableColumn;
 
     @FXML
     private TableColumn<model.Part, String> partNameTableColumn;
 
     @FXML
-    private TableColumn<model.Part, Integer> partInventoryLevelTableColumn;
+    private TableColumn<model.Part, Number> partInventoryLevelTableColumn;
 
     @FXML
-    private TableColumn<model.Part, Double> partPriceTableColumn;
+    private TableColumn<model.Part, Number> partPriceTableColumn;
 
     @FXML
     private TextField productsSearchTextField;
@@ -81,20 +92,23 @@ public class MainScreenController implements Initializable {
     private TableView<model.Product> productsTableView;
 
     @FXML
-    private TableColumn<?, ?> productIdTableColumn;
+    private TableColumn<model.Product, Number> productIdTableColumn;
 
     @FXML
-    private TableColumn<?, ?> productNameTableColumn;
+    private TableColumn<model.Product, String> productNameTableColumn;
 
     @FXML
-    private TableColumn<?, ?> productInventoryLevelTableColumn;
+    private TableColumn<model.Product, Number> productInventoryLevelTableColumn;
 
     @FXML
-    private TableColumn<?, ?> productPriceTableColumn;
+    private TableColumn<model.Product, Number> productPriceTableColumn;
 
     @FXML
     private Label noPartMatchesLabel;
 
+    @FXML
+    private ProgressIndicator partsSearchProgressIndicator;
+
     @FXML
     private Button partsSearchButton;
 
@@ -104,6 +118,12 @@ public class MainScreenController implements Initializable {
     @FXML
     private Label noProductMatchesLabel;
 
+    @FXML
+    private ProgressIndicator productsSearchProgressIndicator;
+
+    @FXML
+    private Label reorderStatusLabel;
+
     @FXML
     void onAddPartButtonClick(ActionEvent event) throws MalformedURLException, IOException {
         // Default behavior for the EditPartController is to add a new Part.
@@ -130,8 +150,17 @@ public class MainScreenController implements Initializable {
             ModelHelper.showNotificationDialog("Delete Part", "Nothing is selected", "You must select a part before it can be deleted", Alert.AlertType.WARNING);
             return;
         }
-        // Get list of products where this is the only associated part.
-        FilteredList<model.Product> violations = ModelHelper.getWhereLastAssociatedProduct(part.getId());
+        // The products that use the part are found in the background, and the dialogs are shown when they are ready.
+        deleteQuery.run((InventorySnapshot snapshot) -> {
+            List<model.Product> products = snapshot.getAssociatedProducts(part);
+            // Get list of products where this is the only associated part.
+            List<model.Product> violations = products.stream().filter((model.Product p) -> snapshot.getAssociatedParts(p).size() == 1)
+                    .collect(Collectors.toList());
+            return new Pair<>(products.size(), violations);
+        }, (Pair<Integer, List<model.Product>> usage) -> confirmDeletePart(part, usage.getKey(), usage.getValue()));
+    }
+    
+    private void confirmDeletePart(model.Part part, int count, List<model.Product> violations) {
         if (!violations.isEmpty()) {
             String message = "Removing this part would remove the last part from ";
             if (violations.size() == 1)
@@ -143,7 +172,6 @@ public class MainScreenController implements Initializable {
             ModelHelper.showNotificationDialog("Delete Part", "Minimum part Constraint Error", message, Alert.AlertType.WARNING);
             return;
         }
-        int count = model.Inventory.getAllProducts().filtered(p -> p.getAllAssociatedParts().contains(part)).size();
         String contentText = "This action cannot be undone!\n\nAre you sure you want to delete this part?";
         if (count > 0)
             contentText = ((count == 1) ? "1 product references this part, and it will be deleted from that one as well" :
@@ -183,12 +211,12 @@ public class MainScreenController implements Initializable {
             return;
         }
         
-        ObservableList<model.Product> allProducts = model.Inventory.getAllProducts();
-        ArrayList<model.Part> toBeOrphaned = new ArrayList<model.Part>();
-        for (model.Part part: product.getAllAssociatedParts()) {
-            if (allProducts.filtered(p -> p.getAllAssociatedParts().contains(part)).size() < 2)
-                toBeOrphaned.add(part);
-        }
+        deleteQuery.run((InventorySnapshot snapshot) -> snapshot.getAssociatedParts(product).stream()
+                .filter((model.Part part) -> snapshot.getAssociatedProducts(part).size() < 2).collect(Collectors.toList()),
+                (List<model.Part> toBeOrphaned) -> confirmDeleteProduct(product, toBeOrphaned));
+    }
+    
+    private void confirmDeleteProduct(model.Product product, List<model.Part> toBeOrphaned) {
         Optional<ButtonType> result = ModelHelper.showConfirmationDialog("Delete Product", "Confirm Delete Part \"" + product.getName() + "\"",
                 "This action cannot be undone!\n\nAre you sure you want to delete this product?", Alert.AlertType.CONFIRMATION);
         if (result.isPresent() && result.get() == ButtonType.YES) {
@@ -200,8 +228,7 @@ public class MainScreenController implements Initializable {
                 if (!(result.isPresent() && result.get() != ButtonType.CANCEL))
                     return;
                 if (result.get() == ButtonType.YES)
-                    for (model.Part part: toBeOrphaned)
-                        model.Inventory.deletePart(part);
+                    model.Inventory.deleteParts(toBeOrphaned);
             }
             model.Inventory.deleteProduct(product);
         }
@@ -213,20 +240,17 @@ public class MainScreenController implements Initializable {
     /**
      * Utility method to initialize the controller and switch scenes.
      * 
+     * Each screen is only loaded the first time it is shown; after that, the same scene and controller are reset and shown again.
+     * 
      * @param <T> The type of controller to initialize.
      * @param eventSource The source Node for the event.
      * @param path The path of the FXML file to load.
      * @param initializeController Function for initializing the controller.
      */
     public static <T> void changeScene(Node eventSource, String path, java.util.function.Consumer<T> initializeController) {
-        FXMLLoader loader = new FXMLLoader();
-        loader.setLocation(MainScreenController.class.getResource(path));
         Stage stage = (Stage)eventSource.getScene().getWindow();
         try {
-            stage.setScene(new Scene(loader.load()));
-            T controller = loader.getController();
-            if (initializeController != null)
-                initializeController.accept(controller);
+            ScreenCache.show(stage, path, initializeController);
         } catch (IOException ex) {
             Logger.getLogger(MainScreenController.class.getName()).log(Level.SEVERE, null, ex);
             return;
@@ -249,7 +273,8 @@ public class MainScreenController implements Initializable {
         // If showingPartSearchResults is true, then the search text box was disabled, and the table view was showing search results,
         // which means we need to show all items and enable the search box.
         if (showingPartSearchResults) {
-            partsTableView.setItems(model.Inventory.getAllParts());
+            partsQuery.cancel();
+            partsTableView.setItems(Inventory.getAllParts());
             noPartMatchesLabel.setVisible(false);
             partsTableView.setVisible(true);
             partsSearchButton.setText("Search");
@@ -265,28 +290,28 @@ public class MainScreenController implements Initializable {
             ModelHelper.showNotificationDialog("No text", "Nothing to search", "Enter a name to search for...", Alert.AlertType.WARNING);
             return;
         }
-        ObservableList<model.Part> searchResults = FXCollections.observableArrayList();
-        for (model.Part part : Inventory.getAllParts()) {
-            if (part.getName().toLowerCase().contains(searchText))
-                searchResults.add(part);
-        }
-        if (searchResults.isEmpty()) {
-            noPartMatchesLabel.setVisible(true);
-            partsTableView.setVisible(false);
-        } else {
-            noPartMatchesLabel.setVisible(false);
-            partsTableView.setVisible(true);
-            partsTableView.setItems(searchResults);
-        }
-        partsSearchTextField.setDisable(true);
-        partsSearchButton.setText("Show All");
-        showingPartSearchResults = true;
+        // The progress indicator takes the place of the table until the results are ready.
+        noPartMatchesLabel.setVisible(false);
+        partsTableView.setVisible(false);
+        partsQuery.run((InventorySnapshot snapshot) -> FXCollections.observableArrayList(snapshot.searchParts(searchText)),
+                (ObservableList<model.Part> searchResults) -> {
+            if (searchResults.isEmpty())
+                noPartMatchesLabel.setVisible(true);
+            else {
+                partsTableView.setVisible(true);
+                partsTableView.setItems(searchResults);
+            }
+            partsSearchTextField.setDisable(true);
+            partsSearchButton.setText("Show All");
+            showingPartSearchResults = true;
+        });
     }
 
     @FXML
     void onProductsSearchButtonClick(ActionEvent event) {
         if (showingProductSearchResults) {
-            productsTableView.setItems(model.Inventory.getAllProducts());
+            productsQuery.cancel();
+            productsTableView.setItems(Inventory.getAllProducts());
             noProductMatchesLabel.setVisible(false);
             productsTableView.setVisible(true);
             productsSearchButton.setText("Search");
@@ -300,35 +325,132 @@ public class MainScreenController implements Initializable {
             ModelHelper.showNotificationDialog("No text", "Nothing to search", "Enter a name to search for...", Alert.AlertType.WARNING);
             return;
         }
-        ObservableList<model.Product> searchResults = FXCollections.observableArrayList();
-        for (model.Product product : Inventory.getAllProducts()) {
-            if (product.getName().toLowerCase().contains(searchText))
-                searchResults.add(product);
+        noProductMatchesLabel.setVisible(false);
+        productsTableView.setVisible(false);
+        productsQuery.run((InventorySnapshot snapshot) -> FXCollections.observableArrayList(snapshot.searchProducts(searchText)),
+                (ObservableList<model.Product> searchResults) -> {
+            if (searchResults.isEmpty())
+                noProductMatchesLabel.setVisible(true);
+            else {
+                productsTableView.setVisible(true);
+                productsTableView.setItems(searchResults);
+            }
+            productsSearchTextField.setDisable(true);
+            productsSearchButton.setText("Show All");
+            showingProductSearchResults = true;
+        });
+    }
+
+    @Override
+    public void reset() {
+        // Leave the tables where they were, but stop showing search results, as a newly loaded screen would.
+        partsQuery.cancel();
+        productsQuery.cancel();
+        deleteQuery.cancel();
+        if (showingPartSearchResults)
+            onPartsSearchButtonClick(null);
+        else {
+            partsSearchTextField.setText("");
+            partsTableView.setVisible(true);
+            noPartMatchesLabel.setVisible(false);
         }
-        if (searchResults.isEmpty()) {
-            noProductMatchesLabel.setVisible(true);
-            productsTableView.setVisible(false);
-        } else {
-            noProductMatchesLabel.setVisible(false);
+        if (showingProductSearchResults)
+            onProductsSearchButtonClick(null);
+        else {
+            productsSearchTextField.setText("");
             productsTableView.setVisible(true);
-            productsTableView.setItems(searchResults);
+            noProductMatchesLabel.setVisible(false);
         }
-        productsSearchTextField.setDisable(true);
-        productsSearchButton.setText("Show All");
-        showingProductSearchResults = true;
     }
-
+    
+    /**
+     * Sorts the items of a table by its sort order. The items are compared by their own values rather than through the cell values, so
+     * sorting doesn't create cell properties for rows that are not on screen.
+     */
+    private static <T> boolean sortItems(TableView<T> tableView, ObservableList<T> source, Supplier<List<T>> sourceCopy,
+            Map<TableColumn<T, ?>, Comparator<T>> columnComparators) {
+        Comparator<T> comparator = null;
+        for (TableColumn<T, ?> column : tableView.getSortOrder()) {
+            Comparator<T> columnComparator = columnComparators.get(column);
+            if (columnComparator == null)
+                continue;
+            if (column.getSortType() == TableColumn.SortType.DESCENDING)
+                columnComparator = columnComparator.reversed();
+            comparator = (comparator == null) ? columnComparator : comparator.thenComparing(columnComparator);
+        }
+        if (comparator == null)
+            return true;
+        ObservableList<T> items = tableView.getItems();
+        if (items != source) {
+            FXCollections.sort(items, comparator);
+            return true;
+        }
+        // The order of the inventory list is worked out from a copy, so the write lock is only held while the items are moved into it; items
+        // which were added after the copy was taken go last.
+        ArrayList<T> sorted = new ArrayList<>(sourceCopy.get());
+        sorted.sort(comparator);
+        IdentityHashMap<T, Integer> positions = new IdentityHashMap<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++)
+            positions.put(sorted.get(i), i);
+        Comparator<T> byPosition = Comparator.comparingInt((T item) -> positions.getOrDefault(item, Integer.MAX_VALUE));
+        Inventory.update(() -> FXCollections.sort(source, byPosition));
+        return true;
+    }
+    
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        partIdTableColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
-        partInventoryLevelTableColumn.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        partNameTableColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
-        partPriceTableColumn.setCellValueFactory(new PropertyValueFactory<>("price"));
-        productIdTableColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
-        productInventoryLevelTableColumn.setCellValueFactory(new PropertyValueFactory<>("stock"));
-        productNameTableColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
-        productPriceTableColumn.setCellValueFactory(new PropertyValueFactory<>("price"));
-        partsTableView.setItems(model.Inventory.getAllParts());
-        productsTableView.setItems(model.Inventory.getAllProducts());
+        // Cells observe the item properties directly, so they don't use reflection and they show changes as soon as they are made.
+        partIdTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().idProperty());
+        partInventoryLevelTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().stockProperty());
+        partNameTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, String> cell) -> cell.getValue().nameProperty());
+        partPriceTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Part, Number> cell) -> cell.getValue().priceProperty());
+        productIdTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Product, Number> cell) -> cell.getValue().idProperty());
+        productInventoryLevelTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Product, Number> cell) ->
+                cell.getValue().stockProperty());
+        productNameTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Product, String> cell) -> cell.getValue().nameProperty());
+        productPriceTableColumn.setCellValueFactory((TableColumn.CellDataFeatures<model.Product, Number> cell) -> cell.getValue().priceProperty());
+        partsTableView.setItems(Inventory.getAllParts());
+        productsTableView.setItems(Inventory.getAllProducts());
+        partsSearchProgressIndicator.visibleProperty().bind(partsQuery.runningProperty());
+        productsSearchProgressIndicator.visibleProperty().bind(productsQuery.runningProperty());
+        // Typing again while a search is running means its results are no longer wanted.
+        partsSearchTextField.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (partsQuery.isRunning()) {
+                partsQuery.cancel();
+                partsTableView.setVisible(true);
+            }
+        });
+        productsSearchTextField.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (productsQuery.isRunning()) {
+                productsQuery.cancel();
+                productsTableView.setVisible(true);
+            }
+        });
+        Map<TableColumn<model.Part, ?>, Comparator<model.Part>> partComparators = new HashMap<>();
+        partComparators.put(partIdTableColumn, Comparator.comparingInt((model.Part p) -> p.getId()));
+        partComparators.put(partNameTableColumn, Comparator.comparing((model.Part p) -> p.getName()));
+        partComparators.put(partInventoryLevelTableColumn, Comparator.comparingInt((model.Part p) -> p.getStock()));
+        partComparators.put(partPriceTableColumn, Comparator.comparingDouble((model.Part p) -> p.getPrice()));
+        Map<TableColumn<model.Product, ?>, Comparator<model.Product>> productComparators = new HashMap<>();
+        productComparators.put(productIdTableColumn, Comparator.comparingInt((model.Product p) -> p.getId()));
+        productComparators.put(productNameTableColumn, Comparator.comparing((model.Product p) -> p.getName()));
+        productComparators.put(productInventoryLevelTableColumn, Comparator.comparingInt((model.Product p) -> p.getStock()));
+        productComparators.put(productPriceTableColumn, Comparator.comparingDouble((model.Product p) -> p.getPrice()));
+        partsTableView.setSortPolicy((TableView<model.Part> tableView) -> sortItems(tableView, Inventory.getAllParts(),
+                () -> Inventory.getSnapshot().getParts(), partComparators));
+        productsTableView.setSortPolicy((TableView<model.Product> tableView) -> sortItems(tableView, Inventory.getAllProducts(),
+                () -> Inventory.getSnapshot().getProducts(), productComparators));
+        NameCompletion.attach(partsSearchTextField, (String text) -> Inventory.completePartName(text, NameCompletion.MAX_SUGGESTIONS).stream()
+                .map((model.Part p) -> p.getName()).distinct().collect(Collectors.toList()));
+        NameCompletion.attach(productsSearchTextField, (String text) -> Inventory.completeProductName(text, NameCompletion.MAX_SUGGESTIONS).stream()
+                .map((model.Product p) -> p.getName()).distinct().collect(Collectors.toList()));
+        ObservableList<model.Part> partsToReorder = Inventory.getPartReorderList();
+        ObservableList<model.Product> productsToReorder = Inventory.getProductReorderList();
+        reorderStatusLabel.textProperty().bind(Bindings.createStringBinding(() -> {
+            if (partsToReorder.isEmpty() && productsToReorder.isEmpty())
+                return "";
+            return "At or below minimum stock: " + ((partsToReorder.size() == 1) ? "1 part" : String.valueOf(partsToReorder.size()) + " parts") +
+                    ", " + ((productsToReorder.size() == 1) ? "1 product" : String.valueOf(productsToReorder.size()) + " products");
+        }, partsToReorder, productsToReorder));
     }
 }
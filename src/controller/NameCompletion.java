@@ -0,0 +1,86 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import javafx.event.ActionEvent;
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextField;
+
+/**
+ * Shows name suggestions below a text field as the user types.
+ *
+ * @author Leonard T. Erwine
+ */
+public class NameCompletion {
+    /**
+     * The maximum number of suggestions to show at once.
+     */
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private final TextField textField;
+    private final Function<String, List<String>> suggestionProvider;
+    private final ContextMenu suggestionsMenu = new ContextMenu();
+    private boolean applyingSuggestion = false;
+
+    private NameCompletion(TextField textField, Function<String, List<String>> suggestionProvider) {
+        this.textField = textField;
+        this.suggestionProvider = suggestionProvider;
+        suggestionsMenu.setAutoHide(true);
+        textField.textProperty().addListener((observable, oldValue, newValue) -> updateSuggestions(newValue));
+        textField.focusedProperty().addListener((observable, oldValue, newValue) -> {
+            if (!newValue)
+                suggestionsMenu.hide();
+        });
+        textField.disabledProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue)
+                suggestionsMenu.hide();
+        });
+    }
+
+    /**
+     * Attaches name suggestions to a text field.
+     *
+     * @param textField The text field to show suggestions for.
+     * @param suggestionProvider Gets up to MAX_SUGGESTIONS names which start with the current text. This is invoked on every keystroke, so it
+     * should not do any more work than it has to.
+     */
+    public static void attach(TextField textField, Function<String, List<String>> suggestionProvider) {
+        new NameCompletion(textField, suggestionProvider);
+    }
+
+    private void updateSuggestions(String text) {
+        if (applyingSuggestion || textField.isDisabled() || text == null || text.trim().length() == 0) {
+            suggestionsMenu.hide();
+            return;
+        }
+        List<String> names = suggestionProvider.apply(text);
+        if (names.isEmpty()) {
+            suggestionsMenu.hide();
+            return;
+        }
+        ArrayList<MenuItem> items = new ArrayList<>();
+        for (String name : names) {
+            MenuItem item = new MenuItem(name);
+            item.setMnemonicParsing(false);
+            item.setOnAction((ActionEvent event) -> applySuggestion(name));
+            items.add(item);
+        }
+        suggestionsMenu.getItems().setAll(items);
+        if (!suggestionsMenu.isShowing())
+            suggestionsMenu.show(textField, Side.BOTTOM, 0, 0);
+    }
+
+    private void applySuggestion(String name) {
+        applyingSuggestion = true;
+        try {
+            textField.setText(name);
+            textField.positionCaret(name.length());
+        } finally {
+            applyingSuggestion = false;
+        }
+        suggestionsMenu.hide();
+    }
+}
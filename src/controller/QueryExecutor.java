@@ -0,0 +1,103 @@
+package controller;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import model.Inventory;
+import model.InventorySnapshot;
+
+/**
+ * Runs inventory queries on a background thread, so that searching a large inventory doesn't freeze the screen.
+ *
+ * Each query reads a snapshot of the inventory, which doesn't change while the query runs. Starting a query cancels the one that the same
+ * executor is already running, and only the result of the latest query is passed back on the JavaFX Application Thread. Queries from all
+ * executors share one pool of daemon threads.
+ *
+ * @author Leonard T. Erwine
+ */
+public class QueryExecutor {
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+            (Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "Inventory query");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(this, "running", false);
+    // Only read and written on the JavaFX Application Thread.
+    private Future<?> current = null;
+    private long generation = 0;
+
+    /**
+     * Starts a query, cancelling the query that is already running. This must be called on the JavaFX Application Thread.
+     *
+     * @param <T> Type of result.
+     * @param query Gets the result from a snapshot of the inventory. This is called on a background thread.
+     * @param onResult Receives the result on the JavaFX Application Thread, unless the query has been cancelled or superseded by then.
+     */
+    public <T> void run(Function<InventorySnapshot, T> query, Consumer<? super T> onResult) {
+        cancel();
+        long token = generation;
+        running.set(true);
+        current = POOL.submit(() -> {
+            T result;
+            try {
+                result = query.apply(Inventory.getSnapshot());
+            } catch (CancellationException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                Logger.getLogger(QueryExecutor.class.getName()).log(Level.SEVERE, "Inventory query failed.", ex);
+                Platform.runLater(() -> finish(token));
+                return;
+            }
+            Platform.runLater(() -> {
+                if (finish(token))
+                    onResult.accept(result);
+            });
+        });
+    }
+
+    /**
+     * Cancels the query that is running, if any, so that its result is never received. This must be called on the JavaFX Application
+     * Thread.
+     */
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            // Interrupting the thread lets a query which checks for interruption stop early.
+            current.cancel(true);
+            current = null;
+        }
+        running.set(false);
+    }
+
+    /**
+     * Indicates whether a query is running.
+     *
+     * @return True if a query has been started and its result has not been received or cancelled yet.
+     */
+    public boolean isRunning() { return running.get(); }
+
+    /**
+     * Gets the property which indicates whether a query is running, for showing progress while it runs.
+     *
+     * @return The read-only running property.
+     */
+    public ReadOnlyBooleanProperty runningProperty() { return running.getReadOnlyProperty(); }
+
+    private boolean finish(long token) {
+        if (token != generation)
+            return false;
+        current = null;
+        running.set(false);
+        return true;
+    }
+}
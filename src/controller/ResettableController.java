@@ -0,0 +1,13 @@
+package controller;
+
+/**
+ * A screen controller which can be shown again after it has been used, instead of loading its screen again.
+ *
+ * @author Leonard T. Erwine
+ */
+public interface ResettableController {
+    /**
+     * Restores the screen to the state it was in when it was first loaded. This is called before a cached screen is shown again.
+     */
+    void reset();
+}
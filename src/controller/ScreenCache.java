@@ -0,0 +1,93 @@
+package controller;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+/**
+ * Keeps each screen and its controller after it is loaded, so that moving between screens doesn't parse the FXML and build the scene graph
+ * again.
+ *
+ * A screen that is shown again is reset first if its controller is a ResettableController. All methods must be called on the JavaFX
+ * Application Thread.
+ *
+ * @author Leonard T. Erwine
+ */
+public class ScreenCache {
+    private static final HashMap<String, Screen> SCREENS = new HashMap<>();
+
+    private ScreenCache() { }
+
+    /**
+     * Shows a screen on a stage, loading it if it hasn't been loaded yet.
+     *
+     * @param <T> The type of controller.
+     * @param stage The stage to show the screen on.
+     * @param path The path of the FXML file of the screen.
+     * @param initializeController Function for initializing the controller after the screen is shown, or null.
+     * @return The controller of the screen.
+     * @throws IOException The screen could not be loaded.
+     */
+    public static <T> T show(Stage stage, String path, Consumer<T> initializeController) throws IOException {
+        Screen screen = load(path);
+        if (screen.shown && screen.controller instanceof ResettableController)
+            ((ResettableController)screen.controller).reset();
+        screen.shown = true;
+        stage.setScene(screen.scene);
+        @SuppressWarnings("unchecked")
+        T controller = (T)screen.controller;
+        if (initializeController != null)
+            initializeController.accept(controller);
+        return controller;
+    }
+
+    /**
+     * Loads screens ahead of time, so they are quick to show the first time as well.
+     *
+     * Each screen is loaded in a separate event on the JavaFX Application Thread, since controllers attach to the inventory when they are
+     * initialized; the application stays responsive between them. Screens which are already loaded are skipped.
+     *
+     * @param paths The paths of the FXML files of the screens.
+     */
+    public static void warmUp(String... paths) {
+        for (String path : paths) {
+            Platform.runLater(() -> {
+                try {
+                    load(path);
+                } catch (IOException ex) {
+                    Logger.getLogger(ScreenCache.class.getName()).log(Level.WARNING, "Unable to load " + path, ex);
+                }
+            });
+        }
+    }
+
+    private static Screen load(String path) throws IOException {
+        Screen screen = SCREENS.get(path);
+        if (screen == null) {
+            FXMLLoader loader = new FXMLLoader();
+            loader.setLocation(ScreenCache.class.getResource(path));
+            Parent root = loader.load();
+            screen = new Screen(new Scene(root), loader.getController());
+            SCREENS.put(path, screen);
+        }
+        return screen;
+    }
+
+    private static final class Screen {
+        private final Scene scene;
+        private final Object controller;
+        private boolean shown = false;
+
+        Screen(Scene scene, Object controller) {
+            this.scene = scene;
+            this.controller = controller;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import javafx.collections.ListChangeListener;
+
+/**
+ * An immutable list which is stored as a sequence of small arrays, so a changed copy can share all of the arrays that the change doesn't
+ * touch.
+ *
+ * Replacing a range of items copies the chunks which contain the ends of the range and the array of chunk references, so it takes time in
+ * proportion to the chunk size and the number of chunks rather than to the size of the list. Lists can therefore be kept in step with an
+ * observable list by applying each of its changes, and every version can be read from any thread.
+ *
+ * @author Leonard T. Erwine
+ * @param <T> Type of item.
+ */
+final class ChunkedList<T> extends AbstractList<T> implements RandomAccess {
+    private static final int CHUNK_SIZE = 512;
+    // A change with more parts than this is cheaper to apply by copying the whole list it was made to.
+    private static final int MAX_PATCHED_CHANGES = 64;
+    private static final ChunkedList<Object> EMPTY = new ChunkedList<>(new Object[0][], new int[1]);
+
+    private final Object[][] chunks;
+    // The index of the first item of each chunk, followed by the size of the list.
+    private final int[] offsets;
+
+    private ChunkedList(Object[][] chunks, int[] offsets) {
+        this.chunks = chunks;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Gets an empty list.
+     *
+     * @param <T> Type of item.
+     * @return An empty list.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> ChunkedList<T> empty() { return (ChunkedList<T>)EMPTY; }
+
+    /**
+     * Copies the items of a list.
+     *
+     * @param <T> Type of item.
+     * @param items The items to copy.
+     * @return A list of the items.
+     */
+    static <T> ChunkedList<T> of(List<? extends T> items) {
+        int size = items.size();
+        if (size == 0)
+            return empty();
+        if (size > CHUNK_SIZE)
+            return ChunkedList.<T>empty().replace(0, 0, items);
+        return new ChunkedList<>(new Object[][] { items.toArray() }, new int[] { 0, size });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        int chunk = chunkOf(index);
+        return (T)chunks[chunk][index - offsets[chunk]];
+    }
+
+    @Override
+    public int size() { return offsets[chunks.length]; }
+
+    /**
+     * Gets the index of the chunk which contains an item.
+     */
+    private int chunkOf(int index) {
+        int i = Arrays.binarySearch(offsets, 0, chunks.length, index);
+        return (i < 0) ? -i - 2 : i;
+    }
+
+    /**
+     * Gets a copy of the list with a range of items replaced.
+     *
+     * @param from The index of the first item to replace.
+     * @param count The number of items to replace.
+     * @param items The items to put in their place.
+     * @return The changed list, or this list if nothing was changed.
+     */
+    ChunkedList<T> replace(int from, int count, List<? extends T> items) {
+        int size = size();
+        if (from < 0 || count < 0 || from + count > size)
+            throw new IndexOutOfBoundsException();
+        if (count == 0 && items.isEmpty())
+            return this;
+        // The chunks from first to last (exclusive) are replaced. Both ends of the range are kept in chunks of their own, and an end chunk
+        // which would be less than half full is merged with its neighbour, so chunks don't keep getting smaller.
+        int first = (from == size) ? Math.max(chunks.length - 1, 0) : chunkOf(from);
+        int last = (count == 0) ? Math.min(first + 1, chunks.length) : chunkOf(from + count - 1) + 1;
+        int start = offsets[first];
+        int end = offsets[last];
+        int length = end - start - count + items.size();
+        if (length < CHUNK_SIZE / 2) {
+            if (first > 0)
+                start = offsets[--first];
+            else if (last < chunks.length)
+                end = offsets[++last];
+            length = end - start - count + items.size();
+        }
+        Object[] merged = new Object[length];
+        int n = copyRange(start, from, merged, 0);
+        for (T item : items)
+            merged[n++] = item;
+        copyRange(from + count, end, merged, n);
+
+        int chunkCount = (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Object[][] newChunks = new Object[chunks.length - (last - first) + chunkCount][];
+        System.arraycopy(chunks, 0, newChunks, 0, first);
+        System.arraycopy(chunks, last, newChunks, first + chunkCount, chunks.length - last);
+        // Spread the items evenly over the new chunks.
+        for (int i = 0, pos = 0; i < chunkCount; i++) {
+            int chunkLength = (length - pos) / (chunkCount - i);
+            newChunks[first + i] = Arrays.copyOfRange(merged, pos, pos + chunkLength);
+            pos += chunkLength;
+        }
+        int[] newOffsets = new int[newChunks.length + 1];
+        System.arraycopy(offsets, 0, newOffsets, 0, first + 1);
+        for (int i = first; i < newChunks.length; i++)
+            newOffsets[i + 1] = newOffsets[i] + newChunks[i].length;
+        return new ChunkedList<>(newChunks, newOffsets);
+    }
+
+    /**
+     * Copies the items from one index to another into an array.
+     *
+     * @return The index in the array after the last item copied.
+     */
+    private int copyRange(int from, int to, Object[] target, int targetIndex) {
+        if (from >= to)
+            return targetIndex;
+        for (int chunk = chunkOf(from); from < to; chunk++) {
+            int offset = from - offsets[chunk];
+            int n = Math.min(chunks[chunk].length - offset, to - from);
+            System.arraycopy(chunks[chunk], offset, target, targetIndex, n);
+            targetIndex += n;
+            from += n;
+        }
+        return targetIndex;
+    }
+
+    /**
+     * Gets a copy of the list with a change to an observable list applied to it. This list must have held the same items as the observable
+     * list did before the change.
+     *
+     * The change is iterated, so the caller must reset it before reading it again.
+     *
+     * @param change The change to the observable list.
+     * @return The changed list.
+     */
+    ChunkedList<T> apply(ListChangeListener.Change<? extends T> change) {
+        ChunkedList<T> result = this;
+        int changeCount = 0;
+        while (change.next()) {
+            if (++changeCount > MAX_PATCHED_CHANGES)
+                return of(change.getList());
+            if (change.wasPermutated()) {
+                int from = change.getFrom();
+                result = result.replace(from, change.getTo() - from, change.getList().subList(from, change.getTo()));
+            } else if (change.wasRemoved() || change.wasAdded())
+                result = result.replace(change.getFrom(), change.getRemovedSize(), (change.wasAdded()) ? change.getAddedSubList() :
+                        Collections.<T>emptyList());
+        }
+        return result;
+    }
+}
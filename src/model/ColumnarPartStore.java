@@ -0,0 +1,124 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Stores the field values of parts in parallel arrays (one array per field), so scans over a single field read contiguous memory.
+ *
+ * @author Leonard T. Erwine
+ */
+class ColumnarPartStore extends PartStore {
+    private int[] ids;
+    private String[] names;
+    private double[] prices;
+    private int[] stocks;
+    private int[] mins;
+    private int[] maxes;
+    private int[] machineIds;
+    private String[] companyNames;
+
+    /**
+     * Creates a new columnar part store.
+     *
+     * @param initialCapacity The number of slots to allocate initially.
+     */
+    ColumnarPartStore(int initialCapacity) {
+        super(initialCapacity);
+        int capacity = Math.max(initialCapacity, 16);
+        ids = new int[capacity];
+        names = new String[capacity];
+        prices = new double[capacity];
+        stocks = new int[capacity];
+        mins = new int[capacity];
+        maxes = new int[capacity];
+        machineIds = new int[capacity];
+        companyNames = new String[capacity];
+    }
+
+    @Override
+    protected void growTo(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        stocks = Arrays.copyOf(stocks, capacity);
+        mins = Arrays.copyOf(mins, capacity);
+        maxes = Arrays.copyOf(maxes, capacity);
+        machineIds = Arrays.copyOf(machineIds, capacity);
+        companyNames = Arrays.copyOf(companyNames, capacity);
+    }
+
+    @Override
+    protected void copySlot(int fromSlot, int toSlot) {
+        ids[toSlot] = ids[fromSlot];
+        names[toSlot] = names[fromSlot];
+        prices[toSlot] = prices[fromSlot];
+        stocks[toSlot] = stocks[fromSlot];
+        mins[toSlot] = mins[fromSlot];
+        maxes[toSlot] = maxes[fromSlot];
+        machineIds[toSlot] = machineIds[fromSlot];
+        companyNames[toSlot] = companyNames[fromSlot];
+    }
+
+    @Override
+    protected void clearSlot(int slot) {
+        names[slot] = null;
+        companyNames[slot] = null;
+    }
+
+    @Override
+    double getTotalValue() {
+        double total = 0.0;
+        int size = size();
+        for (int slot = 0; slot < size; slot++)
+            total += prices[slot] * stocks[slot];
+        return total;
+    }
+
+    @Override
+    int getId(int slot) { return ids[slot]; }
+
+    @Override
+    void setId(int slot, int value) { ids[slot] = value; }
+
+    @Override
+    String getName(int slot) { return names[slot]; }
+
+    @Override
+    void setName(int slot, String value) { names[slot] = value; }
+
+    @Override
+    double getPrice(int slot) { return prices[slot]; }
+
+    @Override
+    void setPrice(int slot, double value) { prices[slot] = value; }
+
+    @Override
+    int getStock(int slot) { return stocks[slot]; }
+
+    @Override
+    void setStock(int slot, int value) { stocks[slot] = value; }
+
+    @Override
+    int getMin(int slot) { return mins[slot]; }
+
+    @Override
+    void setMin(int slot, int value) { mins[slot] = value; }
+
+    @Override
+    int getMax(int slot) { return maxes[slot]; }
+
+    @Override
+    void setMax(int slot, int value) { maxes[slot] = value; }
+
+    @Override
+    int getMachineId(int slot) { return machineIds[slot]; }
+
+    @Override
+    void setMachineId(int slot, int value) { machineIds[slot] = value; }
+
+    @Override
+    String getCompanyName(int slot) { return companyNames[slot]; }
+
+    @Override
+    void setCompanyName(int slot, String value) { companyNames[slot] = value; }
+}
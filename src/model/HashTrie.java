@@ -0,0 +1,260 @@
+package model;
+
+/**
+ * An immutable hash map which is stored as a trie of small arrays, so a changed copy shares everything but the path to the changed entry.
+ *
+ * Keys are either int values, or objects which are compared by identity; the two kinds should not be mixed in one map. Each change copies
+ * at most one small array for each level of the trie, which has about log32(n) levels, so maps can be kept in step with a changing index and
+ * every version can be read from any thread. Null values are not supported.
+ *
+ * @author Leonard T. Erwine
+ * @param <V> Type of value.
+ */
+final class HashTrie<V> {
+    private static final int BITS = 5;
+    private static final HashTrie<Object> EMPTY = new HashTrie<>(new Node(0, new Object[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private HashTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Gets an empty map.
+     *
+     * @param <V> Type of value.
+     * @return An empty map.
+     */
+    @SuppressWarnings("unchecked")
+    static <V> HashTrie<V> empty() { return (HashTrie<V>)EMPTY; }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return The number of entries.
+     */
+    int size() { return size; }
+
+    /**
+     * Gets the value for an int key.
+     *
+     * @param key The key to look up.
+     * @return The value, or null if the map does not contain the key.
+     */
+    V get(int key) { return find(key, null); }
+
+    /**
+     * Gets the value for an object key.
+     *
+     * @param key The key to look up, which is compared by identity.
+     * @return The value, or null if the map does not contain the key.
+     */
+    V get(Object key) { return find(System.identityHashCode(key), key); }
+
+    /**
+     * Gets a copy of the map with an int key set to a value.
+     *
+     * @param key The key to set.
+     * @param value The new value.
+     * @return The changed map.
+     */
+    HashTrie<V> with(int key, V value) { return with(key, null, value); }
+
+    /**
+     * Gets a copy of the map with an object key set to a value.
+     *
+     * @param key The key to set, which is compared by identity.
+     * @param value The new value.
+     * @return The changed map.
+     */
+    HashTrie<V> with(Object key, V value) { return with(System.identityHashCode(key), key, value); }
+
+    /**
+     * Gets a copy of the map without an int key.
+     *
+     * @param key The key to remove.
+     * @return The changed map, or this map if it did not contain the key.
+     */
+    HashTrie<V> without(int key) { return without(key, null); }
+
+    /**
+     * Gets a copy of the map without an object key.
+     *
+     * @param key The key to remove, which is compared by identity.
+     * @return The changed map, or this map if it did not contain the key.
+     */
+    HashTrie<V> without(Object key) { return without(System.identityHashCode(key), key); }
+
+    @SuppressWarnings("unchecked")
+    private V find(int hash, Object key) {
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = bitOf(hash, shift);
+            if ((node.bitmap & bit) == 0)
+                return null;
+            Object slot = node.slots[node.indexOf(bit)];
+            if (slot instanceof Node) {
+                node = (Node)slot;
+                continue;
+            }
+            for (Entry entry = (Entry)slot; entry != null; entry = entry.next) {
+                if (entry.hash == hash && entry.key == key)
+                    return (V)entry.value;
+            }
+            return null;
+        }
+    }
+
+    private HashTrie<V> with(int hash, Object key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        boolean[] isAdded = new boolean[1];
+        Node newRoot = with(root, 0, new Entry(hash, key, value, null), isAdded);
+        return new HashTrie<>(newRoot, (isAdded[0]) ? size + 1 : size);
+    }
+
+    private static Node with(Node node, int shift, Entry entry, boolean[] isAdded) {
+        int bit = bitOf(entry.hash, shift);
+        int index = node.indexOf(bit);
+        if ((node.bitmap & bit) == 0) {
+            isAdded[0] = true;
+            return node.inserted(bit, index, entry);
+        }
+        Object slot = node.slots[index];
+        if (slot instanceof Node)
+            return node.replaced(index, with((Node)slot, shift + BITS, entry, isAdded));
+        Entry existing = (Entry)slot;
+        if (existing.hash == entry.hash) {
+            // Entries whose hashes are equal are kept in a chain, without the old entry for the key if there was one.
+            Entry chain = existing.without(entry.key);
+            isAdded[0] = chain == existing;
+            return node.replaced(index, new Entry(entry.hash, entry.key, entry.value, chain));
+        }
+        // The hashes differ, so they are split into a node of their own at the first level where they differ.
+        isAdded[0] = true;
+        return node.replaced(index, split(shift + BITS, existing, entry));
+    }
+
+    private static Node split(int shift, Entry a, Entry b) {
+        int bitA = bitOf(a.hash, shift);
+        int bitB = bitOf(b.hash, shift);
+        if (bitA == bitB)
+            return new Node(bitA, new Object[] { split(shift + BITS, a, b) });
+        return new Node(bitA | bitB, (Integer.compareUnsigned(bitA, bitB) < 0) ? new Object[] { a, b } : new Object[] { b, a });
+    }
+
+    private HashTrie<V> without(int hash, Object key) {
+        Object newRoot = without(root, 0, hash, key);
+        if (newRoot == root)
+            return this;
+        if (newRoot == null)
+            return empty();
+        // The root always stays a node.
+        if (newRoot instanceof Entry) {
+            Entry entry = (Entry)newRoot;
+            newRoot = new Node(bitOf(entry.hash, 0), new Object[] { entry });
+        }
+        return new HashTrie<>((Node)newRoot, size - 1);
+    }
+
+    /**
+     * Removes a key from a node.
+     *
+     * @return The node itself if it doesn't contain the key; otherwise, the changed node, the only entry that is left in it, or null if it is
+     * left empty.
+     */
+    private static Object without(Node node, int shift, int hash, Object key) {
+        int bit = bitOf(hash, shift);
+        if ((node.bitmap & bit) == 0)
+            return node;
+        int index = node.indexOf(bit);
+        Object slot = node.slots[index];
+        Object newSlot;
+        if (slot instanceof Node)
+            newSlot = without((Node)slot, shift + BITS, hash, key);
+        else {
+            Entry entry = (Entry)slot;
+            newSlot = (entry.hash == hash) ? entry.without(key) : entry;
+        }
+        if (newSlot == slot)
+            return node;
+        if (newSlot == null) {
+            if (node.slots.length == 1)
+                return null;
+            Node removed = node.removed(bit, index);
+            // A node which only holds one entry is replaced by the entry, so the trie doesn't keep empty branches.
+            return (removed.slots.length == 1 && removed.slots[0] instanceof Entry) ? removed.slots[0] : removed;
+        }
+        if (newSlot instanceof Entry && node.slots.length == 1)
+            return newSlot;
+        return node.replaced(index, newSlot);
+    }
+
+    private static int bitOf(int hash, int shift) { return 1 << ((hash >>> shift) & ((1 << BITS) - 1)); }
+
+    private static final class Node {
+        private final int bitmap;
+        // One slot for each bit that is set in the bitmap, in order; each is a Node or the first Entry of a chain.
+        private final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int indexOf(int bit) { return Integer.bitCount(bitmap & (bit - 1)); }
+
+        Node inserted(int bit, int index, Object slot) {
+            Object[] newSlots = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            newSlots[index] = slot;
+            System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+            return new Node(bitmap | bit, newSlots);
+        }
+
+        Node replaced(int index, Object slot) {
+            Object[] newSlots = slots.clone();
+            newSlots[index] = slot;
+            return new Node(bitmap, newSlots);
+        }
+
+        Node removed(int bit, int index) {
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, newSlots.length - index);
+            return new Node(bitmap & ~bit, newSlots);
+        }
+    }
+
+    private static final class Entry {
+        private final int hash;
+        // Null for int keys, which are matched by their hash alone.
+        private final Object key;
+        private final Object value;
+        private final Entry next;
+
+        Entry(int hash, Object key, Object value, Entry next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * Gets the chain starting at this entry without the entry for a key.
+         *
+         * @return The chain without the key, which is this entry if the chain did not contain the key.
+         */
+        Entry without(Object key) {
+            if (this.key == key)
+                return next;
+            if (next == null)
+                return this;
+            Entry rest = next.without(key);
+            return (rest == next) ? this : new Entry(hash, this.key, value, rest);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package model;
+
+import java.util.BitSet;
+
+/**
+ * Allocates unique identifiers for inventory items.
+ *
+ * Identifiers are handed out from a monotonic counter, which always stays above the highest identifier in use, plus a set of identifiers that
+ * were released when items were removed. Blocks of consecutive identifiers can be reserved so bulk inserters can assign identifiers without
+ * going back to the allocator for each item.
+ *
+ * @author Leonard T. Erwine
+ */
+public final class IdAllocator {
+    private final BitSet freeIds = new BitSet();
+    private int freeCount = 0;
+    private int lowestFreeId = 0;
+    private int nextId = 0;
+    // Identifiers below nextId which were claimed while a block was open. They may be in the unused part of a block, so closing the block
+    // must not free them.
+    private final BitSet claimedIds = new BitSet();
+    private int openBlocks = 0;
+
+    /**
+     * Creates a new allocator with no identifiers in use.
+     */
+    IdAllocator() { }
+
+    /**
+     * Gets an identifier that is not in use, and marks it as being in use.
+     *
+     * @return A unique identifier that is not less than zero.
+     * @throws IllegalStateException All identifiers have been used.
+     */
+    public synchronized int allocate() throws IllegalStateException {
+        if (freeCount > 0) {
+            int id = freeIds.nextSetBit(lowestFreeId);
+            freeIds.clear(id);
+            freeCount--;
+            lowestFreeId = id + 1;
+            return id;
+        }
+        if (nextId == Integer.MAX_VALUE)
+            throw new IllegalStateException("No more unique identifiers are available.");
+        return nextId++;
+    }
+
+    /**
+     * Reserves a block of consecutive identifiers.
+     *
+     * @param count The number of identifiers to reserve.
+     * @return The reserved identifiers.
+     * @throws IllegalArgumentException count is less than one.
+     * @throws IllegalStateException There are not enough identifiers left to reserve the block.
+     */
+    public synchronized Block reserve(int count) throws IllegalArgumentException, IllegalStateException {
+        if (count < 1)
+            throw new IllegalArgumentException("Count must be greater than zero.");
+        if (Integer.MAX_VALUE - nextId < count)
+            throw new IllegalStateException("No more unique identifiers are available.");
+        int start = nextId;
+        nextId += count;
+        openBlocks++;
+        return new Block(this, start, nextId);
+    }
+
+    /**
+     * Marks an identifier as being in use.
+     *
+     * @param id The identifier that is being used by an item.
+     */
+    synchronized void claim(int id) {
+        if (id < 0)
+            return;
+        if (id >= nextId)
+            nextId = (id == Integer.MAX_VALUE) ? id : id + 1;
+        else if (freeIds.get(id)) {
+            freeIds.clear(id);
+            freeCount--;
+        } else if (openBlocks > 0)
+            claimedIds.set(id);
+    }
+
+    /**
+     * Marks an identifier as no longer being in use, so it can be allocated again.
+     *
+     * @param id The identifier that is no longer being used.
+     */
+    synchronized void release(int id) {
+        if (id < 0 || id >= nextId || freeIds.get(id))
+            return;
+        if (claimedIds.get(id)) {
+            // The identifier may still be unused in an open block, which frees it when it is closed.
+            claimedIds.clear(id);
+            return;
+        }
+        freeIds.set(id);
+        freeCount++;
+        if (id < lowestFreeId)
+            lowestFreeId = id;
+    }
+
+    private synchronized void release(int fromId, int toId) {
+        openBlocks--;
+        if (fromId < toId) {
+            // Identifiers in the block which were claimed while it was open stay in use.
+            BitSet claimed = claimedIds.get(fromId, toId);
+            claimedIds.clear(fromId, toId);
+            if (toId == nextId) {
+                // Nothing was allocated after the block, so the counter can be wound back to the last claimed identifier.
+                int lastClaimed = claimed.length() - 1;
+                nextId = fromId + lastClaimed + 1;
+                toId = nextId;
+            }
+            // Free each run of identifiers between the claimed ones.
+            for (int start = fromId; start < toId; ) {
+                int nextClaimed = claimed.nextSetBit(start - fromId);
+                int end = (nextClaimed < 0) ? toId : Math.min(toId, fromId + nextClaimed);
+                if (start < end) {
+                    freeCount += (end - start) - freeIds.get(start, end).cardinality();
+                    freeIds.set(start, end);
+                    if (start < lowestFreeId)
+                        lowestFreeId = start;
+                }
+                start = end + 1;
+            }
+        }
+        if (openBlocks == 0)
+            claimedIds.clear();
+    }
+
+    /**
+     * A block of consecutive identifiers reserved for a single bulk inserter.
+     *
+     * This is not thread-safe; each inserter should reserve its own block.
+     */
+    public static final class Block implements AutoCloseable {
+        private final IdAllocator owner;
+        private int next;
+        private final int end;
+        private boolean isClosed = false;
+
+        private Block(IdAllocator owner, int start, int end) {
+            this.owner = owner;
+            this.next = start;
+            this.end = end;
+        }
+
+        /**
+         * Determines whether there are any identifiers left in the block.
+         *
+         * @return True if there are identifiers left in the block; otherwise, false.
+         */
+        public boolean hasNext() { return next < end; }
+
+        /**
+         * Gets the number of identifiers left in the block.
+         *
+         * @return The number of identifiers left in the block.
+         */
+        public int remaining() { return end - next; }
+
+        /**
+         * Takes the next identifier from the block.
+         *
+         * @return The next identifier from the block.
+         * @throws IllegalStateException There are no identifiers left in the block.
+         */
+        public int next() throws IllegalStateException {
+            if (next >= end)
+                throw new IllegalStateException("No identifiers left in block.");
+            return next++;
+        }
+
+        /**
+         * Returns any unused identifiers in the block to the allocator.
+         */
+        @Override
+        public void close() {
+            if (isClosed)
+                return;
+            isClosed = true;
+            owner.release(next, end);
+            next = end;
+        }
+    }
+}
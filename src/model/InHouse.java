@@ -1,6 +1,7 @@
 package model;
 
 import java.security.InvalidParameterException;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Represents an part that is produced in-house.
@@ -33,7 +34,7 @@ public class InHouse extends Part {
      * 
      * @return The identifier of the machine that produced the part.
      */
-    public int getMachineId() { return machineId; }
+    public int getMachineId() { return (getStore() == null) ? machineId : getStore().getMachineId(getStoreSlot()); }
 
     /**
      * Sets the identifier of the machine that produced the part.
@@ -41,8 +42,25 @@ public class InHouse extends Part {
      * @param machineId The identifier of the machine that produced the part.
      */
     public void setMachineId(int machineId) {
-        int oldMachineId = this.machineId;
-        this.machineId = machineId;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MACHINEID, oldMachineId, machineId);
+        int oldMachineId = getMachineId();
+        if (getStore() == null)
+            this.machineId = machineId;
+        else {
+            // Stored values are only written while holding the inventory write lock.
+            Lock lock = Inventory.getWriteLock();
+            lock.lock();
+            try {
+                if (getStore() == null)
+                    this.machineId = machineId;
+                else
+                    getStore().setMachineId(getStoreSlot(), machineId);
+            } finally {
+                lock.unlock();
+            }
+        }
+        fireIntChanged(ModelHelper.PROP_MACHINEID, oldMachineId, machineId);
     }
+    
+    @Override
+    void readStoreFields(PartStore source, int slot) { machineId = source.getMachineId(slot); }
 }
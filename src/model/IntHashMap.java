@@ -0,0 +1,225 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Hash table that maps primitive int keys to object values without boxing the keys.
+ *
+ * Uses open addressing with linear probing. Removed entries are back-filled by shifting subsequent entries, so lookups never have to skip over
+ * tombstones. Null values are not supported, because a null value is used to mark an empty slot.
+ *
+ * @author Leonard T. Erwine
+ * @param <V> Type of value being stored.
+ */
+class IntHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+    private int threshold;
+
+    /**
+     * Creates a new empty hash table.
+     */
+    IntHashMap() { this(DEFAULT_CAPACITY); }
+
+    /**
+     * Creates a new empty hash table which can hold a specified number of entries without having to be resized.
+     *
+     * @param expectedSize The number of entries the hash table is expected to hold.
+     */
+    IntHashMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity >> 1 < expectedSize)
+            capacity <<= 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        threshold = thresholdOf(capacity);
+    }
+
+    private static int thresholdOf(int capacity) { return (capacity >> 1) + (capacity >> 2); }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the index of the slot which contains a key or the index of the empty slot where the key would be stored.
+     */
+    private int slotOf(int key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (values[i] != null && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    /**
+     * Gets the number of entries in the hash table.
+     *
+     * @return The number of entries in the hash table.
+     */
+    int size() { return size; }
+
+    /**
+     * Determines whether the hash table is empty.
+     *
+     * @return True if the hash table contains no entries; otherwise, false.
+     */
+    boolean isEmpty() { return size == 0; }
+
+    /**
+     * Gets the value associated with a key.
+     *
+     * @param key The key to look up.
+     * @return The value associated with the key or null if there is no entry for the key.
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) { return (V)values[slotOf(key)]; }
+
+    /**
+     * Determines whether the hash table contains an entry for a key.
+     *
+     * @param key The key to look up.
+     * @return True if an entry exists for the key; otherwise, false.
+     */
+    boolean containsKey(int key) { return values[slotOf(key)] != null; }
+
+    /**
+     * Associates a value with a key, replacing any existing value.
+     *
+     * @param key The key for the entry.
+     * @param value The value to associate with the key.
+     * @return The value previously associated with the key or null if there was no entry for the key.
+     * @throws NullPointerException value is null.
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        int i = slotOf(key);
+        Object oldValue = values[i];
+        values[i] = value;
+        if (oldValue == null) {
+            keys[i] = key;
+            if (++size > threshold)
+                resize(keys.length << 1);
+        }
+        return (V)oldValue;
+    }
+
+    /**
+     * Associates a value with a key only if there is not already an entry for that key.
+     *
+     * @param key The key for the entry.
+     * @param value The value to associate with the key.
+     * @return The value that was already associated with the key or null if the new value was added.
+     * @throws NullPointerException value is null.
+     */
+    @SuppressWarnings("unchecked")
+    V putIfAbsent(int key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        int i = slotOf(key);
+        if (values[i] != null)
+            return (V)values[i];
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold)
+            resize(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Removes the entry for a key.
+     *
+     * @param key The key of the entry to remove.
+     * @return The value that was associated with the key or null if there was no entry for the key.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int i = slotOf(key);
+        Object oldValue = values[i];
+        if (oldValue != null)
+            removeAt(i);
+        return (V)oldValue;
+    }
+
+    /**
+     * Removes the entry for a key only if it is currently associated with a specific value.
+     *
+     * @param key The key of the entry to remove.
+     * @param value The value expected to be associated with the key. This is compared by reference.
+     * @return True if the entry was removed; otherwise, false.
+     */
+    boolean remove(int key, V value) {
+        int i = slotOf(key);
+        if (values[i] == null || values[i] != value)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Removes all entries from the hash table.
+     */
+    void clear() {
+        if (size == 0)
+            return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Performs an action on each value in the hash table.
+     *
+     * @param action The action to perform on each value.
+     */
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        for (Object value : values) {
+            if (value != null)
+                action.accept((V)value);
+        }
+    }
+
+    private void removeAt(int i) {
+        int mask = keys.length - 1;
+        values[i] = null;
+        size--;
+        // Shift subsequent entries of the same probe sequence back so there are no gaps between an entry and its home slot.
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null)
+                return;
+            int home = hash(keys[j]) & mask;
+            if ((j > i) ? (home <= i || home > j) : (home <= i && home > j)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        threshold = thresholdOf(capacity);
+        int mask = capacity - 1;
+        for (int n = 0; n < oldValues.length; n++) {
+            if (oldValues[n] == null)
+                continue;
+            int i = hash(oldKeys[n]) & mask;
+            while (values[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = oldKeys[n];
+            values[i] = oldValues[n];
+        }
+    }
+}
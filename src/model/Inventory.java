@@ -1,33 +1,483 @@
 package model;
 
+import java.io.IOException;
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javax.management.openmbean.KeyAlreadyExistsException;
 
 /**
  * Maintains the in-memory inventory lists.
  * 
+ * The methods which modify the inventory serialize through a single write lock, so they can be called from any thread. Searches and name
+ * lookups take the matching read lock, so they can run on any thread alongside each other, and lookups by unique identifier read the
+ * published snapshot. The lists and the other lookup methods are not otherwise synchronized, so code running on any thread other than the one that edits the inventory should read it through getSnapshot(), and should
+ * make direct changes to the lists or items through update(Runnable).
+ * 
  * @author Leonard T. Erwine
  */
 
 public class Inventory {
     private static final ObservableList<Part> allParts = FXCollections.observableArrayList();
     private static final ObservableList<Product> allProducts = FXCollections.observableArrayList();
+    private static final IntHashMap<Part> partsById = new IntHashMap<>();
+    private static final IntHashMap<Product> productsById = new IntHashMap<>();
+    private static final IdAllocator partIds = new IdAllocator();
+    private static final IdAllocator productIds = new IdAllocator();
+    private static final HashMap<Part, ArrayList<Product>> productsByPart = new HashMap<>();
+    private static final NameIndex<Part> partsByName = new NameIndex<>();
+    private static final NameIndex<Product> productsByName = new NameIndex<>();
+    private static final TrigramIndex<Part> partNameSearchIndex = new TrigramIndex<>();
+    private static final TrigramIndex<Product> productNameSearchIndex = new TrigramIndex<>();
+    private static final ReorderWatch<Part> partReorderWatch = new ReorderWatch<>((Part p) -> p.getStock(), (Part p) -> p.getMin());
+    private static final ReorderWatch<Product> productReorderWatch = new ReorderWatch<>((Product p) -> p.getStock(), (Product p) -> p.getMin());
+    private static volatile PartStore partStore = null;
+    private static boolean uniquePartNamesRequired = false;
+    private static boolean uniqueProductNamesRequired = false;
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final Lock readLock = lock.readLock();
+    private static final Lock writeLock = lock.writeLock();
+    private static long modCount = 0L;
+    private static final InventorySnapshot.Builder snapshotBuilder = new InventorySnapshot.Builder();
+    private static volatile InventorySnapshot snapshot = snapshotBuilder.build(0L);
+    private static IdentityHashMap<Object, Integer> pendingStockChanges = new IdentityHashMap<>();
+    private static final Object pendingStockChangesLock = new Object();
+    // Set while a flush is queued or running, so that only one flush reports stock changes at a time. Guarded by pendingStockChangesLock.
+    private static boolean stockChangeFlushPending = false;
+    private static volatile Executor stockChangeExecutor = (Runnable command) -> command.run();
+    private static RepositorySync repositorySync = null;
+    
+    // Keeps the indexes, the part price sums of products and the re-order watch lists in sync as parts in the inventory are changed. Items can
+    // be changed on any thread, so the indexes are only updated while holding the write lock, and the read lock is held while they are searched.
+    private static final ItemChangeListener<Part> partChangeListener = new ItemChangeListener<Part>() {
+        @Override
+        public void intChanged(Part part, String propertyName, int oldValue, int newValue) {
+            writeLock.lock();
+            try {
+                switch (propertyName) {
+                    case ModelHelper.PROP_ID:
+                        if (partsById.remove(oldValue, part))
+                            partIds.release(oldValue);
+                        partsById.putIfAbsent(part.getId(), part);
+                        partIds.claim(part.getId());
+                        snapshotBuilder.partIdChanged(part, oldValue);
+                        publishSnapshot();
+                        break;
+                    case ModelHelper.PROP_STOCK:
+                    case ModelHelper.PROP_MIN:
+                    case ModelHelper.PROP_MAX:
+                        partReorderWatch.update(part);
+                        break;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        
+        @Override
+        public void doubleChanged(Part part, String propertyName, double oldValue, double newValue) {
+            if (!ModelHelper.PROP_PRICE.equals(propertyName))
+                return;
+            writeLock.lock();
+            try {
+                ArrayList<Product> products = productsByPart.get(part);
+                if (products == null)
+                    return;
+                for (Product product : products)
+                    product.refreshPartPriceSum();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        
+        @Override
+        public void objectChanged(Part part, String propertyName, Object oldValue, Object newValue) {
+            if (!ModelHelper.PROP_NAME.equals(propertyName))
+                return;
+            writeLock.lock();
+            try {
+                partsByName.rename((String)oldValue, (String)newValue, part);
+                partNameSearchIndex.rename(part, (String)newValue);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    };
+    
+    // Keeps the indexes and the re-order watch list in sync as products in the inventory are changed.
+    private static final ItemChangeListener<Product> productChangeListener = new ItemChangeListener<Product>() {
+        @Override
+        public void intChanged(Product product, String propertyName, int oldValue, int newValue) {
+            writeLock.lock();
+            try {
+                switch (propertyName) {
+                    case ModelHelper.PROP_ID:
+                        if (productsById.remove(oldValue, product))
+                            productIds.release(oldValue);
+                        productsById.putIfAbsent(product.getId(), product);
+                        productIds.claim(product.getId());
+                        snapshotBuilder.productIdChanged(product, oldValue);
+                        publishSnapshot();
+                        break;
+                    case ModelHelper.PROP_STOCK:
+                    case ModelHelper.PROP_MIN:
+                    case ModelHelper.PROP_MAX:
+                        productReorderWatch.update(product);
+                        break;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        
+        @Override
+        public void objectChanged(Product product, String propertyName, Object oldValue, Object newValue) {
+            if (!ModelHelper.PROP_NAME.equals(propertyName))
+                return;
+            writeLock.lock();
+            try {
+                productsByName.rename((String)oldValue, (String)newValue, product);
+                productNameSearchIndex.rename(product, (String)newValue);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    };
+    
+    static {
+        // The lists are exposed publicly, so the indexes are maintained from list change events rather than from the add/delete methods.
+        allParts.addListener((ListChangeListener.Change<? extends Part> change) -> {
+            writeLock.lock();
+            try {
+                snapshotBuilder.partsChanged(change);
+                change.reset();
+                while (change.next()) {
+                    if (change.wasPermutated())
+                        continue;
+                    for (Part part : change.getRemoved()) {
+                        part.removeChangeListener(partChangeListener);
+                        partReorderWatch.remove(part);
+                        if (partsById.remove(part.getId(), part))
+                            partIds.release(part.getId());
+                        partsByName.remove(part.getName(), part);
+                        partNameSearchIndex.remove(part);
+                        if (partStore != null && part.getStore() == partStore)
+                            part.detachStore();
+                    }
+                    for (Part part : change.getAddedSubList()) {
+                        partsById.putIfAbsent(part.getId(), part);
+                        partIds.claim(part.getId());
+                        partsByName.add(part.getName(), part);
+                        partNameSearchIndex.add(part, part.getName());
+                        if (partStore != null)
+                            part.attachStore(partStore);
+                        part.addChangeListener(partChangeListener);
+                        partReorderWatch.add(part);
+                    }
+                }
+                publishSnapshot();
+            } finally {
+                writeLock.unlock();
+            }
+        });
+        allProducts.addListener((ListChangeListener.Change<? extends Product> change) -> {
+            writeLock.lock();
+            try {
+                snapshotBuilder.productsChanged(change);
+                change.reset();
+                while (change.next()) {
+                    if (change.wasPermutated())
+                        continue;
+                    for (Product product : change.getRemoved()) {
+                        product.getAllAssociatedParts().forEach((part) -> unassociate(part, product));
+                        product.removeChangeListener(productChangeListener);
+                        productReorderWatch.remove(product);
+                        if (productsById.remove(product.getId(), product))
+                            productIds.release(product.getId());
+                        productsByName.remove(product.getName(), product);
+                        productNameSearchIndex.remove(product);
+                    }
+                    for (Product product : change.getAddedSubList()) {
+                        productsById.putIfAbsent(product.getId(), product);
+                        productIds.claim(product.getId());
+                        productsByName.add(product.getName(), product);
+                        productNameSearchIndex.add(product, product.getName());
+                        product.addChangeListener(productChangeListener);
+                        productReorderWatch.add(product);
+                        product.getAllAssociatedParts().forEach((part) -> associate(part, product));
+                        // Part prices may have changed while the product was not being tracked.
+                        product.refreshPartPriceSum();
+                    }
+                }
+                publishSnapshot();
+            } finally {
+                writeLock.unlock();
+            }
+        });
+    }
+    
+    /**
+     * Publishes a snapshot of the changes that have been recorded by the snapshot builder. Must be called while holding the write lock.
+     */
+    private static void publishSnapshot() {
+        modCount++;
+        snapshot = snapshotBuilder.build(modCount);
+    }
+    
+    /**
+     * Gets a point-in-time record of which parts and products are in the inventory, which can be safely read from any thread.
+     * 
+     * The field values of the items are not copied; see InventorySnapshot for how to read them from other threads. A new snapshot is
+     * published after each change to the inventory, and it only records what the change touched, so this never waits for a lock and never
+     * copies the inventory.
+     * 
+     * @return A snapshot of the parts and products in the inventory.
+     */
+    public static InventorySnapshot getSnapshot() { return snapshot; }
+    
+    /**
+     * Runs an action while holding the inventory write lock.
+     * 
+     * Use this to make changes directly to the inventory lists or to the items in the inventory from a thread other than the one which
+     * normally edits the inventory, or to make several changes which other threads should not see separately.
+     * 
+     * @param action The action which changes the inventory.
+     */
+    public static void update(Runnable action) {
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the inventory write lock, for code which only needs to hold it in some cases, such as writing the values of a stored part.
+     * 
+     * @return The write lock.
+     */
+    static Lock getWriteLock() { return writeLock; }
+    
+    /**
+     * Gets the inventory read lock, which is held while reading values that can only be changed under the write lock, such as the values of
+     * stored parts. The write lock must not be taken while holding it.
+     * 
+     * @return The read lock.
+     */
+    static Lock getReadLock() { return readLock; }
+    
+    /**
+     * Adds to the number of a part in stock as a single atomic operation, which can be called from any thread.
+     * 
+     * Concurrent adjustments to the same part are never lost. Adjustments to different parts only hold the write lock long enough to look the
+     * part up by its identifier, unless parts are stored in a part store. Listeners are notified of the change through the stock change
+     * executor, and several adjustments to the same part that are made before the executor runs are reported as a single change.
+     * 
+     * @param partId The unique identifier of the part.
+     * @param delta The number of parts to add to the stock. This can be negative to remove parts from stock.
+     * @return The new number of parts in stock.
+     * @throws InvalidParameterException No part has the specified unique identifier, or the new stock level would be less than zero or greater
+     * than the maximum stock level.
+     */
+    public static int adjustPartStock(int partId, int delta) throws InvalidParameterException {
+        Part part;
+        int oldStock = 0;
+        boolean isStored;
+        writeLock.lock();
+        try {
+            part = partsById.get(partId);
+            if (part == null)
+                throw new InvalidParameterException("No part has the specified unique identifier.");
+            // A part store can move or re-allocate slots, so the values of stored parts can only be changed under the write lock.
+            isStored = part.getStore() != null;
+            if (isStored)
+                oldStock = part.adjustStock(delta);
+        } finally {
+            writeLock.unlock();
+        }
+        if (!isStored) {
+            synchronized (part) {
+                oldStock = part.adjustStock(delta);
+            }
+        }
+        queueStockChange(part, oldStock);
+        return oldStock + delta;
+    }
+    
+    /**
+     * Adds to the number of a product in stock as a single atomic operation, which can be called from any thread.
+     * 
+     * Concurrent adjustments to the same product are never lost, and adjustments to different products only hold the write lock long enough
+     * to look the product up by its identifier. Listeners are notified of the change through the stock change executor, and several
+     * adjustments to the same product that are made before the executor runs are reported as a single change.
+     * 
+     * @param productId The unique identifier of the product.
+     * @param delta The number of products to add to the stock. This can be negative to remove products from stock.
+     * @return The new number of products in stock.
+     * @throws InvalidParameterException No product has the specified unique identifier, or the new stock level would be less than zero or
+     * greater than the maximum stock level.
+     */
+    public static int adjustProductStock(int productId, int delta) throws InvalidParameterException {
+        Product product;
+        writeLock.lock();
+        try {
+            product = productsById.get(productId);
+        } finally {
+            writeLock.unlock();
+        }
+        if (product == null)
+            throw new InvalidParameterException("No product has the specified unique identifier.");
+        int oldStock = product.adjustStock(delta);
+        queueStockChange(product, oldStock);
+        return oldStock + delta;
+    }
+    
+    /**
+     * Gets the executor which notifies listeners of stock level changes made through adjustPartStock and adjustProductStock.
+     * 
+     * @return The stock change executor.
+     */
+    public static Executor getStockChangeExecutor() { return stockChangeExecutor; }
+    
+    /**
+     * Sets the executor which notifies listeners of stock level changes made through adjustPartStock and adjustProductStock.
+     * 
+     * By default, listeners are notified on the thread that made the change, as soon as it is made. An executor which runs tasks later, such
+     * as Platform::runLater, lets any number of adjustments made in the meantime be delivered as one batch, on the thread of its choosing.
+     * Only one batch is delivered at a time; adjustments made on other threads while a batch is being delivered are added to it. Set this to
+     * Platform::runLater whenever stock is adjusted from threads other than the JavaFX Application Thread, since the re-order lists and the
+     * JavaFX properties of items must only be changed on that thread.
+     * 
+     * @param executor The executor to use or null to notify listeners on the thread that made the change.
+     */
+    public static void setStockChangeExecutor(Executor executor) {
+        stockChangeExecutor = (executor == null) ? (Runnable command) -> command.run() : executor;
+    }
+    
+    private static void queueStockChange(Object item, int oldStock) {
+        boolean isFirst;
+        synchronized (pendingStockChangesLock) {
+            // Only the stock level from before the first pending change is kept, so each item is reported once per batch.
+            pendingStockChanges.putIfAbsent(item, oldStock);
+            isFirst = !stockChangeFlushPending;
+            stockChangeFlushPending = true;
+        }
+        if (!isFirst)
+            return;
+        try {
+            stockChangeExecutor.execute(Inventory::flushStockChanges);
+        } catch (RuntimeException ex) {
+            synchronized (pendingStockChangesLock) {
+                stockChangeFlushPending = false;
+            }
+            throw ex;
+        }
+    }
+    
+    private static void flushStockChanges() {
+        // Changes queued while a batch is being reported are picked up by the next pass, so only this flush reports them.
+        while (true) {
+            IdentityHashMap<Object, Integer> changes;
+            synchronized (pendingStockChangesLock) {
+                if (pendingStockChanges.isEmpty()) {
+                    stockChangeFlushPending = false;
+                    return;
+                }
+                changes = pendingStockChanges;
+                pendingStockChanges = new IdentityHashMap<>();
+            }
+            for (Map.Entry<Object, Integer> entry : changes.entrySet()) {
+                int oldStock = entry.getValue();
+                if (entry.getKey() instanceof Part) {
+                    Part part = (Part)entry.getKey();
+                    part.fireIntChanged(ModelHelper.PROP_STOCK, oldStock, part.getStock());
+                } else {
+                    Product product = (Product)entry.getKey();
+                    product.fireIntChanged(ModelHelper.PROP_STOCK, oldStock, product.getStock());
+                }
+            }
+        }
+    }
+    
+    private static void associate(Part part, Product product) {
+        ArrayList<Product> products = productsByPart.get(part);
+        if (products == null)
+            productsByPart.put(part, products = new ArrayList<>(2));
+        products.add(product);
+    }
+    
+    private static void unassociate(Part part, Product product) {
+        ArrayList<Product> products = productsByPart.get(part);
+        if (products == null || !products.remove(product))
+            return;
+        if (products.isEmpty())
+            productsByPart.remove(part);
+    }
+    
+    /**
+     * Keeps the part-to-product index in sync with changes to the associated parts of a product.
+     * 
+     * @param product The product whose associated parts have changed.
+     * @param change The change to the associated parts list.
+     */
+    static void onAssociatedPartsChanged(Product product, ListChangeListener.Change<? extends Part> change) {
+        // Products are often filled in before they are added, possibly on other threads, and those changes don't need the lock.
+        if (snapshot.lookupProduct(product.getId()) != product)
+            return;
+        writeLock.lock();
+        try {
+            if (!isProductAdded(product))
+                return;
+            snapshotBuilder.associatedPartsChanged(product, change);
+            change.reset();
+            while (change.next()) {
+                if (change.wasPermutated())
+                    continue;
+                change.getRemoved().forEach((part) -> unassociate(part, product));
+                change.getAddedSubList().forEach((part) -> associate(part, product));
+            }
+            publishSnapshot();
+        } finally {
+            writeLock.unlock();
+        }
+    }
     
     /**
      * Adds a part to the in-memory inventory list.
      * 
      * @param part The new part to be added.
      * @throws NullPointerException part is null.
+     * @throws KeyAlreadyExistsException Unique part names are required and another part already has the same name.
      */
-    public static void addPart(Part part) throws NullPointerException {
-        if (part == null)
-            throw new NullPointerException();
-        if (allParts.contains(part))
-            return;
-        // Make sure part has a valid unique id
-        part.ensureId();
-        allParts.add(part);
+    public static void addPart(Part part) throws NullPointerException, KeyAlreadyExistsException {
+        writeLock.lock();
+        try {
+            if (part == null)
+                throw new NullPointerException();
+            if (isPartAdded(part))
+                return;
+            if (uniquePartNamesRequired && partsByName.containsOther(part.getName(), part))
+                throw new KeyAlreadyExistsException("Another part already has the same name.");
+            // Make sure part has a valid unique id
+            part.ensureId();
+            allParts.add(part);
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     /**
@@ -35,35 +485,300 @@ public class Inventory {
      * 
      * @param product The new product to be added.
      * @throws NullPointerException product is null.
+     * @throws KeyAlreadyExistsException Unique product names are required and another product already has the same name.
      */
-    public static void addProduct(Product product) throws NullPointerException {
-        if (product == null)
-            throw new NullPointerException();
-        if (allProducts.contains(product))
-            return;
-        // Make sure product has a valid unique id
-        product.ensureId();
-        allProducts.add(product);
+    public static void addProduct(Product product) throws NullPointerException, KeyAlreadyExistsException {
+        writeLock.lock();
+        try {
+            if (product == null)
+                throw new NullPointerException();
+            if (isProductAdded(product))
+                return;
+            if (uniqueProductNamesRequired && productsByName.containsOther(product.getName(), product))
+                throw new KeyAlreadyExistsException("Another product already has the same name.");
+            // Make sure product has a valid unique id
+            product.ensureId();
+            allProducts.add(product);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Adds multiple parts to the in-memory inventory list at once.
+     * 
+     * All parts are validated and given unique identifiers before any are added, and they are appended with a single list change, so
+     * listeners are only notified once. Parts that are already in the inventory are ignored.
+     * 
+     * @param parts The new parts to be added.
+     * @throws NullPointerException parts or any of its elements is null.
+     * @throws KeyAlreadyExistsException Unique part names are required and two parts would have the same name.
+     */
+    public static void addParts(Collection<? extends Part> parts) throws NullPointerException, KeyAlreadyExistsException {
+        writeLock.lock();
+        try {
+            if (parts == null)
+                throw new NullPointerException();
+            ArrayList<Part> toAdd = new ArrayList<>(parts.size());
+            Set<Part> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            HashSet<String> names = (uniquePartNamesRequired) ? new HashSet<>() : null;
+            for (Part part : parts) {
+                if (part == null)
+                    throw new NullPointerException();
+                if (isPartAdded(part) || !seen.add(part))
+                    continue;
+                if (names != null && (partsByName.containsOther(part.getName(), part) || !names.add(NameIndex.toKey(part.getName()))))
+                    throw new KeyAlreadyExistsException("Another part already has the same name.");
+                toAdd.add(part);
+            }
+            if (toAdd.isEmpty())
+                return;
+        
+            // Keep the ids that are valid and unique, then give all of the others ids from one reserved block.
+            IntHashMap<Part> batchIds = new IntHashMap<>(toAdd.size());
+            ArrayList<Part> needIds = new ArrayList<>();
+            for (Part part : toAdd) {
+                int id = part.getId();
+                if (id < 0 || partsById.containsKey(id) || batchIds.putIfAbsent(id, part) != null)
+                    needIds.add(part);
+                else
+                    partIds.claim(id);
+            }
+            if (!needIds.isEmpty()) {
+                try (IdAllocator.Block block = partIds.reserve(needIds.size())) {
+                    for (Part part : needIds) {
+                        int id = nextUnusedId(block, partsById, batchIds);
+                        part.assignId((id < 0) ? nextPartId() : id);
+                    }
+                }
+            }
+            allParts.addAll(toAdd);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Adds multiple products to the in-memory inventory list at once.
+     * 
+     * All products are validated and given unique identifiers before any are added, and they are appended with a single list change, so
+     * listeners are only notified once. Associated parts which are not yet in the inventory are added first, also with a single change.
+     * Products that are already in the inventory are ignored.
+     * 
+     * @param products The new products to be added.
+     * @throws NullPointerException products or any of its elements is null.
+     * @throws KeyAlreadyExistsException Unique product or part names are required and two products or parts would have the same name.
+     */
+    public static void addProducts(Collection<? extends Product> products) throws NullPointerException, KeyAlreadyExistsException {
+        writeLock.lock();
+        try {
+            if (products == null)
+                throw new NullPointerException();
+            ArrayList<Product> toAdd = new ArrayList<>(products.size());
+            Set<Product> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            HashSet<String> names = (uniqueProductNamesRequired) ? new HashSet<>() : null;
+            ArrayList<Part> parts = new ArrayList<>();
+            for (Product product : products) {
+                if (product == null)
+                    throw new NullPointerException();
+                if (isProductAdded(product) || !seen.add(product))
+                    continue;
+                if (names != null && (productsByName.containsOther(product.getName(), product) || !names.add(NameIndex.toKey(product.getName()))))
+                    throw new KeyAlreadyExistsException("Another product already has the same name.");
+                toAdd.add(product);
+                parts.addAll(product.getAllAssociatedParts());
+            }
+            if (toAdd.isEmpty())
+                return;
+            addParts(parts);
+        
+            // Keep the ids that are valid and unique, then give all of the others ids from one reserved block.
+            IntHashMap<Product> batchIds = new IntHashMap<>(toAdd.size());
+            ArrayList<Product> needIds = new ArrayList<>();
+            for (Product product : toAdd) {
+                int id = product.getId();
+                if (id < 0 || productsById.containsKey(id) || batchIds.putIfAbsent(id, product) != null)
+                    needIds.add(product);
+                else
+                    productIds.claim(id);
+            }
+            if (!needIds.isEmpty()) {
+                try (IdAllocator.Block block = productIds.reserve(needIds.size())) {
+                    for (Product product : needIds) {
+                        int id = nextUnusedId(block, productsById, batchIds);
+                        product.assignId((id < 0) ? nextProductId() : id);
+                    }
+                }
+            }
+            allProducts.addAll(toAdd);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Takes the next identifier from a block which is not used by an item in the inventory or in the batch being added. Block identifiers
+     * are normally unused, but an identifier could have been set on an item without the allocator knowing that it was in use.
+     * 
+     * @return An unused identifier, or -1 if there are none left in the block.
+     */
+    private static <T> int nextUnusedId(IdAllocator.Block block, IntHashMap<T> itemsById, IntHashMap<T> batchIds) {
+        while (block.hasNext()) {
+            int id = block.next();
+            if (!itemsById.containsKey(id) && !batchIds.containsKey(id))
+                return id;
+        }
+        return -1;
+    }
+    
+    /**
+     * Adds parts and products which are known to be valid, such as those loaded from a snapshot file, skipping the checks that are made when
+     * items are added individually.
+     * 
+     * The parts and products must have unique, non-negative identifiers; the parts associated with each product must be in the parts list; and
+     * the names must be unique if unique names are required. If the inventory is not empty, the items are added through addParts and
+     * addProducts instead, with all of the usual checks.
+     * 
+     * @param parts The parts to add.
+     * @param products The products to add.
+     */
+    static void addTrusted(List<Part> parts, List<Product> products) {
+        writeLock.lock();
+        try {
+            if (!(allParts.isEmpty() && allProducts.isEmpty())) {
+                addParts(parts);
+                addProducts(products);
+                return;
+            }
+            allParts.addAll(parts);
+            allProducts.addAll(products);
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     /**
-     * Gets the Part whose unique identifier matches a specified value.
+     * Gets the Part whose unique identifier matches a specified value. This can be called from any thread.
      * 
      * @param partId The unique identifier to search for.
      * @return The Part where getId() matches the specified value or null if no matches were found.
      */
-    public static Part lookupPart(int partId) { return (Part)ModelHelper.lookupPart(allParts, partId); }
+    public static Part lookupPart(int partId) { return snapshot.lookupPart(partId); }
     
     /**
-     * Gets the Product whose unique identifier matches a specified value.
+     * Gets the Product whose unique identifier matches a specified value. This can be called from any thread.
      * 
      * @param productId The unique identifier to search for.
      * @return The Product where getId() matches the specified value or null if no matches were found.
      */
-    public static Product lookupProduct(int productId) { return (Product)ModelHelper.lookupProduct(allProducts, productId); }
+    public static Product lookupProduct(int productId) { return snapshot.lookupProduct(productId); }
+    
+    /**
+     * Gets the parts whose name contains a specified value (case-insensitive). This can be called from any thread.
+     * 
+     * @param text The text to search for.
+     * @return The parts where getName() contains the specified string.
+     */
+    public static List<Part> searchParts(String text) { return searchParts(null, text); }
+    
+    /**
+     * Gets the products whose name contains a specified value (case-insensitive). This can be called from any thread.
+     * 
+     * @param text The text to search for.
+     * @return The products where getName() contains the specified string.
+     */
+    public static List<Product> searchProducts(String text) { return searchProducts(null, text); }
+    
+    /**
+     * Searches the part name index, leaving out parts that are not in a snapshot.
+     * 
+     * @param source The snapshot to limit the results to, or null to search the whole inventory.
+     * @param text The text to search for.
+     * @return The matching parts.
+     */
+    static List<Part> searchParts(InventorySnapshot source, String text) {
+        readLock.lock();
+        try {
+            List<Part> matches = partNameSearchIndex.search(text);
+            // Parts that were added after an older snapshot was taken are left out.
+            if (source != null && source != snapshot)
+                matches.removeIf((Part p) -> source.lookupPart(p.getId()) != p);
+            return matches;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Searches the product name index, leaving out products that are not in a snapshot.
+     * 
+     * @param source The snapshot to limit the results to, or null to search the whole inventory.
+     * @param text The text to search for.
+     * @return The matching products.
+     */
+    static List<Product> searchProducts(InventorySnapshot source, String text) {
+        readLock.lock();
+        try {
+            List<Product> matches = productNameSearchIndex.search(text);
+            if (source != null && source != snapshot)
+                matches.removeIf((Product p) -> source.lookupProduct(p.getId()) != p);
+            return matches;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the parts whose name starts with a specified value (case-insensitive), in alphabetical order. This can be called from any thread.
+     * 
+     * @param prefix The text that names must start with.
+     * @param limit The maximum number of parts to return.
+     * @return Up to limit parts where getName() starts with the specified string.
+     */
+    public static List<Part> completePartName(String prefix, int limit) {
+        readLock.lock();
+        try {
+            return partsByName.startingWith(prefix, limit);
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the products whose name starts with a specified value (case-insensitive), in alphabetical order. This can be called from any
+     * thread.
+     * 
+     * @param prefix The text that names must start with.
+     * @param limit The maximum number of products to return.
+     * @return Up to limit products where getName() starts with the specified string.
+     */
+    public static List<Product> completeProductName(String prefix, int limit) {
+        readLock.lock();
+        try {
+            return productsByName.startingWith(prefix, limit);
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Determines whether a part has been added to the inventory list. This can be called from any thread.
+     * 
+     * @param part Part to test.
+     * @return True if part exists in inventory list; otherwise, false.
+     */
+    public static boolean isPartAdded(Part part) { return part != null && snapshot.lookupPart(part.getId()) == part; }
+    
+    /**
+     * Determines whether a product has been added to the inventory list. This can be called from any thread.
+     * 
+     * @param product Product to test.
+     * @return True if product exists in inventory list; otherwise, false.
+     */
+    public static boolean isProductAdded(Product product) { return product != null && snapshot.lookupProduct(product.getId()) == product; }
     
     /**
-     * Gets the Part whose name matches a specified value (case-insensitive).
+     * Gets the Part whose name matches a specified value (case-insensitive). This can be called from any thread.
      * 
      * @param partName The part name to search for.
      * @return The Part where getName() matches the specified string or null if no matches were found.
@@ -71,15 +786,16 @@ public class Inventory {
     public static Part lookupPart(String partName) {
         if (partName == null || (partName = partName.trim()).length() == 0)
             return null;
-        for (Part part : allParts) {
-            if (part.getName().equalsIgnoreCase(partName))
-                return part;
+        readLock.lock();
+        try {
+            return partsByName.first(partName);
+        } finally {
+            readLock.unlock();
         }
-        return null;
     }
     
     /**
-     * Gets the Product whose name matches a specified value (case-insensitive).
+     * Gets the Product whose name matches a specified value (case-insensitive). This can be called from any thread.
      * 
      * @param productName The product name to search for.
      * @return The Product where getName() matches the specified string or null if no matches were found.
@@ -87,11 +803,368 @@ public class Inventory {
     public static Product lookupProduct(String productName) {
         if (productName == null || (productName = productName.trim()).length() == 0)
             return null;
-        for (Product product : allProducts) {
-            if (product.getName().equalsIgnoreCase(productName))
-                return product;
+        readLock.lock();
+        try {
+            return productsByName.first(productName);
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the products in the inventory that a part is associated with.
+     * 
+     * @param part The part to look up.
+     * @return A read-only list of the products that part is associated with.
+     */
+    public static List<Product> getAssociatedProducts(Part part) {
+        ArrayList<Product> products = productsByPart.get(part);
+        return (products == null) ? Collections.emptyList() : Collections.unmodifiableList(products);
+    }
+    
+    /**
+     * Gets the products in the inventory that a part is associated with.
+     * 
+     * @param partId The unique identifier of the part to look up.
+     * @return A read-only list of the products that the part is associated with.
+     */
+    public static List<Product> getAssociatedProducts(int partId) {
+        Part part = partsById.get(partId);
+        return (part == null) ? Collections.emptyList() : getAssociatedProducts(part);
+    }
+    
+    /**
+     * Reserves a block of consecutive unique identifiers which are not used by any part, for use when adding parts in bulk.
+     * 
+     * @param count The number of identifiers to reserve.
+     * @return The reserved identifiers. Closing the block returns any unused identifiers.
+     * @throws IllegalArgumentException count is less than one.
+     */
+    public static IdAllocator.Block reservePartIds(int count) throws IllegalArgumentException { return partIds.reserve(count); }
+    
+    /**
+     * Reserves a block of consecutive unique identifiers which are not used by any product, for use when adding products in bulk.
+     * 
+     * @param count The number of identifiers to reserve.
+     * @return The reserved identifiers. Closing the block returns any unused identifiers.
+     * @throws IllegalArgumentException count is less than one.
+     */
+    public static IdAllocator.Block reserveProductIds(int count) throws IllegalArgumentException { return productIds.reserve(count); }
+    
+    /**
+     * Gets a unique identifier that is not used by any part.
+     */
+    static int nextPartId() {
+        int id;
+        // Skip any ids that were handed out and then explicitly assigned to another part.
+        do { id = partIds.allocate(); } while (partsById.containsKey(id));
+        return id;
+    }
+    
+    /**
+     * Gets a unique identifier that is not used by any product.
+     */
+    static int nextProductId() {
+        int id;
+        // Skip any ids that were handed out and then explicitly assigned to another product.
+        do { id = productIds.allocate(); } while (productsById.containsKey(id));
+        return id;
+    }
+    
+    /**
+     * Determines whether the field values of parts in the inventory are kept in a columnar store.
+     * 
+     * @return True if part values are kept in parallel arrays; otherwise, false.
+     */
+    public static boolean isColumnarPartStorage() { return partStore instanceof ColumnarPartStore; }
+    
+    /**
+     * Sets whether the field values of parts in the inventory are kept in a columnar store.
+     * 
+     * When enabled, the prices, stock levels and other values of all parts in the inventory are moved into parallel arrays, which makes
+     * aggregate scans such as getTotalPartValue() run over contiguous memory. Parts removed from the inventory get their own copies back.
+     * 
+     * @param enabled True to keep part values in parallel arrays; false for each part to hold its own values.
+     */
+    public static void setColumnarPartStorage(boolean enabled) {
+        writeLock.lock();
+        try {
+            if (enabled == isColumnarPartStorage())
+                return;
+            setPartStore((enabled) ? new ColumnarPartStore(allParts.size()) : null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Determines whether the field values of parts in the inventory are kept outside of the Java heap.
+     * 
+     * @return True if part values are kept in off-heap records; otherwise, false.
+     */
+    public static boolean isOffHeapPartStorage() { return partStore instanceof OffHeapPartStore; }
+    
+    /**
+     * Sets whether the field values of parts in the inventory are kept outside of the Java heap.
+     * 
+     * When enabled, the values of all parts in the inventory, including their names, are moved into fixed-width records in direct buffers.
+     * The Part objects in the inventory list become lightweight handles which read and write those records, so multi-million part
+     * catalogues don't need a correspondingly large heap. Parts removed from the inventory get their own copies back.
+     * 
+     * @param enabled True to keep part values off-heap; false for each part to hold its own values.
+     */
+    public static void setOffHeapPartStorage(boolean enabled) {
+        writeLock.lock();
+        try {
+            if (enabled == isOffHeapPartStorage())
+                return;
+            setPartStore((enabled) ? new OffHeapPartStore(allParts.size()) : null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private static void setPartStore(PartStore store) {
+        if (partStore != null)
+            allParts.forEach((part) -> part.detachStore());
+        partStore = store;
+        if (store != null)
+            allParts.forEach((part) -> part.attachStore(store));
+    }
+    
+    /**
+     * Gets the repository that changes to the inventory are being written to.
+     * 
+     * @return The repository, or null if changes are not being written to a repository.
+     */
+    public static InventoryRepository getRepository() {
+        RepositorySync sync = repositorySync;
+        return (sync == null) ? null : sync.getRepository();
+    }
+    
+    /**
+     * Sets the repository that changes to the inventory are written to.
+     * 
+     * The repository is a persistence mirror of the inventory, which is still kept in memory. If the inventory is empty, the whole contents of
+     * the repository are loaded into it. Otherwise, the parts and products in the inventory are written to the repository, replacing any with
+     * the same unique identifiers. From then on, every change to the inventory is written to the repository as well. The repository that was
+     * being used before is flushed, but not closed.
+     * 
+     * @param repository The repository to write changes to, or null to stop writing changes to a repository.
+     * @throws IOException The repository could not be read or written.
+     */
+    public static void setRepository(InventoryRepository repository) throws IOException {
+        writeLock.lock();
+        try {
+            if (repositorySync != null) {
+                RepositorySync stopping = repositorySync;
+                repositorySync = null;
+                stopping.stop();
+            }
+            if (repository == null)
+                return;
+            if (allParts.isEmpty() && allProducts.isEmpty())
+                loadRepository(repository);
+            else {
+                for (Part part : allParts)
+                    repository.putPart(part);
+                for (Product product : allProducts)
+                    repository.putProduct(product);
+                repository.flush();
+            }
+            repositorySync = new RepositorySync(repository);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private static void loadRepository(InventoryRepository repository) throws IOException {
+        final int pageSize = 10000;
+        ArrayList<Part> parts = new ArrayList<>();
+        for (List<Part> page = repository.getParts(0, pageSize); !page.isEmpty(); page = repository.getParts(parts.size(), pageSize))
+            parts.addAll(page);
+        ArrayList<Product> products = new ArrayList<>();
+        for (List<Product> page = repository.getProducts(0, pageSize); !page.isEmpty(); page = repository.getProducts(products.size(), pageSize))
+            products.addAll(page);
+    
+        // The repository only caches recently used parts, so products may refer to other copies of the parts that were loaded.
+        IntHashMap<Part> loadedParts = new IntHashMap<>(parts.size());
+        for (Part part : parts)
+            loadedParts.putIfAbsent(part.getId(), part);
+        ArrayList<Part> associated = new ArrayList<>();
+        for (Product product : products) {
+            ObservableList<Part> productParts = product.getAllAssociatedParts();
+            associated.clear();
+            boolean isChanged = false;
+            for (Part part : productParts) {
+                Part loaded = loadedParts.get(part.getId());
+                if (loaded != part)
+                    isChanged = true;
+                if (loaded != null)
+                    associated.add(loaded);
+            }
+            if (isChanged)
+                productParts.setAll(associated);
+        }
+        addTrusted(parts, products);
+    }
+
+    /**
+     * Gets the total value of all parts in the inventory.
+     * 
+     * @return The sum of price multiplied by stock for each part.
+     */
+    public static double getTotalPartValue() {
+        if (partStore != null)
+            return partStore.getTotalValue();
+        double total = 0.0;
+        for (Part part : allParts)
+            total += part.getPrice() * part.getStock();
+        return total;
+    }
+    
+    /**
+     * Gets the parts in the inventory whose stock is at or below their minimum stock level.
+     * 
+     * @return A copy of the part re-order list, with the parts that are furthest below their minimum first.
+     */
+    public static List<Part> getPartsAtOrBelowMin() { return partReorderWatch.toList(); }
+    
+    /**
+     * Gets the products in the inventory whose stock is at or below their minimum stock level.
+     * 
+     * @return A copy of the product re-order list, with the products that are furthest below their minimum first.
+     */
+    public static List<Product> getProductsAtOrBelowMin() { return productReorderWatch.toList(); }
+    
+    /**
+     * Gets a live list of the parts in the inventory whose stock is at or below their minimum stock level.
+     * 
+     * The list is updated as stock levels change, and is ordered by how far each part is below its minimum, with the largest shortfall first.
+     * 
+     * The list is changed on the thread that reports a stock level change, and must only be used on the JavaFX Application Thread. When
+     * stock is adjusted from other threads through adjustPartStock, set the stock change executor to Platform::runLater.
+     * 
+     * @return An unmodifiable observable list of parts.
+     */
+    public static ObservableList<Part> getPartReorderList() { return partReorderWatch.getItems(); }
+    
+    /**
+     * Gets a live list of the products in the inventory whose stock is at or below their minimum stock level.
+     * 
+     * The list is updated as stock levels change, and is ordered by how far each product is below its minimum, with the largest shortfall
+     * first.
+     * 
+     * The list is changed on the thread that reports a stock level change, and must only be used on the JavaFX Application Thread. When
+     * stock is adjusted from other threads through adjustProductStock, set the stock change executor to Platform::runLater.
+     * 
+     * @return An unmodifiable observable list of products.
+     */
+    public static ObservableList<Product> getProductReorderList() { return productReorderWatch.getItems(); }
+    
+    /**
+     * Adds a listener which is notified when the stock level of a part in the inventory falls to or below its minimum, or rises back above it.
+     * 
+     * @param listener The listener to add.
+     */
+    public static void addPartReorderListener(ReorderThresholdListener<? super Part> listener) { partReorderWatch.addListener(listener); }
+    
+    /**
+     * Removes a listener that was added with addPartReorderListener.
+     * 
+     * @param listener The listener to remove.
+     */
+    public static void removePartReorderListener(ReorderThresholdListener<? super Part> listener) { partReorderWatch.removeListener(listener); }
+    
+    /**
+     * Adds a listener which is notified when the stock level of a product in the inventory falls to or below its minimum, or rises back above
+     * it.
+     * 
+     * @param listener The listener to add.
+     */
+    public static void addProductReorderListener(ReorderThresholdListener<? super Product> listener) {
+        productReorderWatch.addListener(listener);
+    }
+    
+    /**
+     * Removes a listener that was added with addProductReorderListener.
+     * 
+     * @param listener The listener to remove.
+     */
+    public static void removeProductReorderListener(ReorderThresholdListener<? super Product> listener) {
+        productReorderWatch.removeListener(listener);
+    }
+    
+    /**
+     * Determines whether parts in the inventory are required to have unique names (case-insensitive).
+     * 
+     * @return True if part names must be unique; otherwise, false.
+     */
+    public static boolean isUniquePartNamesRequired() { return uniquePartNamesRequired; }
+    
+    /**
+     * Sets whether parts in the inventory are required to have unique names (case-insensitive).
+     * 
+     * @param required True if part names must be unique; otherwise, false.
+     * @throws KeyAlreadyExistsException required is true and more than one part in the inventory already has the same name.
+     */
+    public static void setUniquePartNamesRequired(boolean required) throws KeyAlreadyExistsException {
+        writeLock.lock();
+        try {
+            if (required && partsByName.hasDuplicates())
+                throw new KeyAlreadyExistsException("More than one part already has the same name.");
+            uniquePartNamesRequired = required;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Determines whether products in the inventory are required to have unique names (case-insensitive).
+     * 
+     * @return True if product names must be unique; otherwise, false.
+     */
+    public static boolean isUniqueProductNamesRequired() { return uniqueProductNamesRequired; }
+    
+    /**
+     * Sets whether products in the inventory are required to have unique names (case-insensitive).
+     * 
+     * @param required True if product names must be unique; otherwise, false.
+     * @throws KeyAlreadyExistsException required is true and more than one product in the inventory already has the same name.
+     */
+    public static void setUniqueProductNamesRequired(boolean required) throws KeyAlreadyExistsException {
+        writeLock.lock();
+        try {
+            if (required && productsByName.hasDuplicates())
+                throw new KeyAlreadyExistsException("More than one product already has the same name.");
+            uniqueProductNamesRequired = required;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Determines whether a part other than the specified one has a matching name.
+     */
+    static boolean isPartNameInUse(String name, Part part) {
+        readLock.lock();
+        try {
+            return partsByName.containsOther(name, part);
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Determines whether a product other than the specified one has a matching name.
+     */
+    static boolean isProductNameInUse(String name, Product product) {
+        readLock.lock();
+        try {
+            return productsByName.containsOther(name, product);
+        } finally {
+            readLock.unlock();
         }
-        return null;
     }
     
     /**
@@ -101,35 +1174,41 @@ public class Inventory {
      * @param part - Contains the values to apply to the part.
      */
     public static void updatePart(int index, Part part) throws NullPointerException, InvalidParameterException {
-        if (part == null)
-            throw new NullPointerException();
-        int currentIndex = allParts.indexOf(part);
-        if (currentIndex == index)
-            return;
-        Part existing = allParts.get(index);
-        int id = existing.getId();
-        if (id != part.getId())
-            throw new InvalidParameterException("Unique identifier of part does not match the unique identifier at the specified index.");
+        writeLock.lock();
+        try {
+            if (part == null)
+                throw new NullPointerException();
+            Part existing = allParts.get(index);
+            if (existing == part)
+                return;
+            int id = existing.getId();
+            if (id != part.getId())
+                throw new InvalidParameterException("Unique identifier of part does not match the unique identifier at the specified index.");
+            // If part is already in the inventory list, a copy is stored so the same object doesn't appear twice.
+            boolean isAdded = isPartAdded(part);
         
-        if (part instanceof InHouse) {
-            if (existing instanceof Outsourced) {
-                if (currentIndex > -1)
-                    part = new InHouse(id, part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax(), ((InHouse)part).getMachineId());
+            if (part instanceof InHouse) {
+                if (existing instanceof Outsourced) {
+                    if (isAdded)
+                        part = new InHouse(id, part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax(), ((InHouse)part).getMachineId());
+                    allParts.set(index, part);
+                    return;
+                }
+                ((InHouse)existing).setMachineId(((InHouse)part).getMachineId());
+            } else if (existing instanceof InHouse) {
+                if (isAdded)
+                    part = new Outsourced(id, part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax(), ((Outsourced)part).getCompanyName());
                 allParts.set(index, part);
                 return;
-            }
-            ((InHouse)existing).setMachineId(((InHouse)part).getMachineId());
-        } else if (existing instanceof InHouse) {
-            if (currentIndex > -1)
-                part = new Outsourced(id, part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax(), ((Outsourced)part).getCompanyName());
-            allParts.set(index, part);
-            return;
-        } else
-            ((Outsourced)existing).setCompanyName(((Outsourced)part).getCompanyName());
-        existing.setName(part.getName());
-        existing.setPrice(part.getPrice());
-        existing.setStock(part.getStock());
-        existing.setMinMax(part.getMin(), part.getMax());
+            } else
+                ((Outsourced)existing).setCompanyName(((Outsourced)part).getCompanyName());
+            existing.setName(part.getName());
+            existing.setPrice(part.getPrice());
+            existing.setStock(part.getStock());
+            existing.setMinMax(part.getMin(), part.getMax());
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     /**
@@ -138,19 +1217,23 @@ public class Inventory {
      * @param product
      */
     public static void updateProduct(int index, Product product) {
-        if (product == null)
-            throw new NullPointerException();
-        int currentIndex = allProducts.indexOf(product);
-        if (currentIndex == index)
-            return;
-        Product existing = allProducts.get(index);
-        if (existing.getId() != product.getId())
-            throw new InvalidParameterException("Unique identifier of product does not match the unique identifier at the specified index.");
-        existing.setName(product.getName());
-        existing.setPrice(product.getPrice());
-        existing.setStock(product.getStock());
-        existing.setMinMax(product.getMin(), product.getMax());
-        existing.setAllAssociatedParts(product.getAllAssociatedParts());
+        writeLock.lock();
+        try {
+            if (product == null)
+                throw new NullPointerException();
+            Product existing = allProducts.get(index);
+            if (existing == product)
+                return;
+            if (existing.getId() != product.getId())
+                throw new InvalidParameterException("Unique identifier of product does not match the unique identifier at the specified index.");
+            existing.setName(product.getName());
+            existing.setPrice(product.getPrice());
+            existing.setStock(product.getStock());
+            existing.setMinMax(product.getMin(), product.getMax());
+            existing.setAllAssociatedParts(product.getAllAssociatedParts());
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     /**
@@ -158,10 +1241,17 @@ public class Inventory {
      * @param part
      */
     public static void deletePart(Part part) {
-        if (part == null || !allParts.contains(part))
-            return;
-        allProducts.forEach((Product p) -> p.deleteAssociatedPart(part));
-        allParts.remove(part);
+        writeLock.lock();
+        try {
+            if (!isPartAdded(part))
+                return;
+            ArrayList<Product> products = productsByPart.get(part);
+            if (products != null)
+                new ArrayList<>(products).forEach((Product p) -> p.deleteAssociatedPart(part));
+            allParts.remove(part);
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     /**
@@ -169,8 +1259,71 @@ public class Inventory {
      * @param product
      */
     public static void deleteProduct(Product product) {
-        if (product != null && allProducts.contains(product))
-            allProducts.remove(product);
+        writeLock.lock();
+        try {
+            if (isProductAdded(product))
+                allProducts.remove(product);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Deletes multiple parts from the in-memory inventory list at once.
+     * 
+     * The parts are disassociated from every product that uses them in a single pass, with one list change per affected product, and are then
+     * removed from the inventory list with a single list change. Parts that are not in the inventory are ignored.
+     * 
+     * @param parts The parts to be deleted.
+     * @throws NullPointerException parts is null.
+     */
+    public static void deleteParts(Collection<? extends Part> parts) throws NullPointerException {
+        writeLock.lock();
+        try {
+            if (parts == null)
+                throw new NullPointerException();
+            HashSet<Part> toDelete = new HashSet<>();
+            HashSet<Product> affectedProducts = new HashSet<>();
+            for (Part part : parts) {
+                if (!isPartAdded(part) || !toDelete.add(part))
+                    continue;
+                ArrayList<Product> products = productsByPart.get(part);
+                if (products != null)
+                    affectedProducts.addAll(products);
+            }
+            if (toDelete.isEmpty())
+                return;
+            for (Product product : affectedProducts)
+                product.getAllAssociatedParts().removeAll(toDelete);
+            allParts.removeAll(toDelete);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Deletes multiple products from the in-memory inventory list at once, with a single list change.
+     * 
+     * Products that are not in the inventory are ignored.
+     * 
+     * @param products The products to be deleted.
+     * @throws NullPointerException products is null.
+     */
+    public static void deleteProducts(Collection<? extends Product> products) throws NullPointerException {
+        writeLock.lock();
+        try {
+            if (products == null)
+                throw new NullPointerException();
+            HashSet<Product> toDelete = new HashSet<>();
+            for (Product product : products) {
+                if (isProductAdded(product))
+                    toDelete.add(product);
+            }
+            if (!toDelete.isEmpty())
+                allProducts.removeAll(toDelete);
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     /**
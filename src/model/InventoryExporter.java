@@ -0,0 +1,358 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes the contents of the inventory to CSV or JSON files.
+ *
+ * The output uses the same columns as InventoryImporter, so exported files can be imported again: type, id, name, price, stock, min, max,
+ * machineId, companyName, and parts, where the parts of a product are written as a list of part identifiers. JSON output is an array with one
+ * object per line.
+ *
+ * The items are read from an inventory snapshot, so the output is consistent even if the inventory is being changed, and are encoded directly
+ * into a single reusable buffer which is written to the channel whenever it fills up. No copy of the inventory is made and no strings are
+ * built for the individual values, so the memory used does not depend on the size of the inventory.
+ *
+ * @author Leonard T. Erwine
+ */
+public final class InventoryExporter {
+    /**
+     * The output formats.
+     */
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    private static final String CSV_HEADER = "type,id,name,price,stock,min,max,machineId,companyName,parts\n";
+    private static final int BUFFER_SIZE = 65536;
+    // Room for the longest value that is written without checking the space remaining, such as a number.
+    private static final int MAX_VALUE_SIZE = 32;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final char[] digits = new char[20];
+
+    private InventoryExporter(WritableByteChannel channel) { this.channel = channel; }
+
+    /**
+     * Writes the current contents of the inventory to a file, replacing the file if it already exists.
+     *
+     * @param path The path of the file.
+     * @param format The format of the file.
+     * @throws IOException The file could not be written.
+     */
+    public static void export(Path path, Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            export(Inventory.getSnapshot(), channel, format);
+        }
+    }
+
+    /**
+     * Writes the current contents of the inventory to a channel.
+     *
+     * @param channel The channel to write to. It is not closed.
+     * @param format The format of the output.
+     * @throws IOException The output could not be written.
+     */
+    public static void export(WritableByteChannel channel, Format format) throws IOException {
+        export(Inventory.getSnapshot(), channel, format);
+    }
+
+    /**
+     * Writes the contents of an inventory snapshot to a channel.
+     *
+     * @param snapshot The snapshot to write.
+     * @param channel The channel to write to. It is not closed.
+     * @param format The format of the output.
+     * @throws IOException The output could not be written.
+     */
+    public static void export(InventorySnapshot snapshot, WritableByteChannel channel, Format format) throws IOException {
+        if (snapshot == null || channel == null || format == null)
+            throw new NullPointerException();
+        InventoryExporter exporter = new InventoryExporter(channel);
+        if (format == Format.CSV)
+            exporter.writeCsv(snapshot);
+        else
+            exporter.writeJson(snapshot);
+        exporter.flush();
+    }
+
+    private void writeCsv(InventorySnapshot snapshot) throws IOException {
+        writeAscii(CSV_HEADER);
+        List<Part> parts = snapshot.getParts();
+        // Values are copied a block at a time, so the write lock isn't held while writing to the channel.
+        for (int from = 0; from < parts.size(); from += InventorySnapshot.VALUE_BLOCK_SIZE) {
+            int to = Math.min(from + InventorySnapshot.VALUE_BLOCK_SIZE, parts.size());
+            InventorySnapshot.Values values = snapshot.readPartValues(from, to);
+            for (int i = 0; i < to - from; i++) {
+                boolean isInHouse = parts.get(from + i) instanceof InHouse;
+                writeAscii((isInHouse) ? "InHouse," : "Outsourced,");
+                writeInt(values.ids[i]);
+                writeByte(',');
+                writeCsvString(values.names[i]);
+                writeByte(',');
+                writePrice(values.prices[i]);
+                writeByte(',');
+                writeInt(values.stock[i]);
+                writeByte(',');
+                writeInt(values.min[i]);
+                writeByte(',');
+                writeInt(values.max[i]);
+                writeByte(',');
+                if (isInHouse) {
+                    writeInt(values.machineIds[i]);
+                    writeAscii(",,\n");
+                } else {
+                    writeByte(',');
+                    writeCsvString(values.companyNames[i]);
+                    writeAscii(",\n");
+                }
+            }
+        }
+        List<Product> products = snapshot.getProducts();
+        for (int from = 0; from < products.size(); from += InventorySnapshot.VALUE_BLOCK_SIZE) {
+            int to = Math.min(from + InventorySnapshot.VALUE_BLOCK_SIZE, products.size());
+            InventorySnapshot.Values values = snapshot.readProductValues(from, to);
+            for (int i = 0; i < to - from; i++) {
+                writeAscii("Product,");
+                writeInt(values.ids[i]);
+                writeByte(',');
+                writeCsvString(values.names[i]);
+                writeByte(',');
+                writePrice(values.prices[i]);
+                writeByte(',');
+                writeInt(values.stock[i]);
+                writeByte(',');
+                writeInt(values.min[i]);
+                writeByte(',');
+                writeInt(values.max[i]);
+                writeAscii(",,,");
+                int[] partIds = values.associatedPartIds[i];
+                for (int k = 0; k < partIds.length; k++) {
+                    if (k > 0)
+                        writeByte(';');
+                    writeInt(partIds[k]);
+                }
+                writeByte('\n');
+            }
+        }
+    }
+
+    private void writeJson(InventorySnapshot snapshot) throws IOException {
+        writeByte('[');
+        boolean isFirst = true;
+        List<Part> parts = snapshot.getParts();
+        for (int from = 0; from < parts.size(); from += InventorySnapshot.VALUE_BLOCK_SIZE) {
+            int to = Math.min(from + InventorySnapshot.VALUE_BLOCK_SIZE, parts.size());
+            InventorySnapshot.Values values = snapshot.readPartValues(from, to);
+            for (int i = 0; i < to - from; i++) {
+                writeAscii((isFirst) ? "\n" : ",\n");
+                isFirst = false;
+                boolean isInHouse = parts.get(from + i) instanceof InHouse;
+                writeAscii((isInHouse) ? "{\"type\":\"InHouse\",\"id\":" : "{\"type\":\"Outsourced\",\"id\":");
+                writeJsonFields(values.ids[i], values.names[i], values.prices[i], values.stock[i], values.min[i], values.max[i]);
+                if (isInHouse) {
+                    writeAscii(",\"machineId\":");
+                    writeInt(values.machineIds[i]);
+                } else {
+                    writeAscii(",\"companyName\":");
+                    writeJsonString(values.companyNames[i]);
+                }
+                writeByte('}');
+            }
+        }
+        List<Product> products = snapshot.getProducts();
+        for (int from = 0; from < products.size(); from += InventorySnapshot.VALUE_BLOCK_SIZE) {
+            int to = Math.min(from + InventorySnapshot.VALUE_BLOCK_SIZE, products.size());
+            InventorySnapshot.Values values = snapshot.readProductValues(from, to);
+            for (int i = 0; i < to - from; i++) {
+                writeAscii((isFirst) ? "\n" : ",\n");
+                isFirst = false;
+                writeAscii("{\"type\":\"Product\",\"id\":");
+                writeJsonFields(values.ids[i], values.names[i], values.prices[i], values.stock[i], values.min[i], values.max[i]);
+                writeAscii(",\"parts\":[");
+                int[] partIds = values.associatedPartIds[i];
+                for (int k = 0; k < partIds.length; k++) {
+                    if (k > 0)
+                        writeByte(',');
+                    writeInt(partIds[k]);
+                }
+                writeAscii("]}");
+            }
+        }
+        writeAscii("\n]\n");
+    }
+
+    private void writeJsonFields(int id, String name, double price, int stock, int min, int max) throws IOException {
+        writeInt(id);
+        writeAscii(",\"name\":");
+        writeJsonString(name);
+        writeAscii(",\"price\":");
+        writePrice(price);
+        writeAscii(",\"stock\":");
+        writeInt(stock);
+        writeAscii(",\"min\":");
+        writeInt(min);
+        writeAscii(",\"max\":");
+        writeInt(max);
+    }
+
+    private void ensureRoom(int size) throws IOException {
+        if (buffer.remaining() < size)
+            flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensureRoom(1);
+        buffer.put((byte)c);
+    }
+
+    private void writeAscii(String text) throws IOException {
+        ensureRoom(text.length());
+        for (int i = 0; i < text.length(); i++)
+            buffer.put((byte)text.charAt(i));
+    }
+
+    private void writeInt(long value) throws IOException {
+        ensureRoom(MAX_VALUE_SIZE);
+        if (value < 0) {
+            buffer.put((byte)'-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (char)('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0)
+            buffer.put((byte)digits[--count]);
+    }
+
+    private void writePrice(double price) throws IOException {
+        // Most prices are whole cents, which can be written exactly without formatting a string.
+        long cents = Math.round(price * 100.0);
+        if (cents / 100.0 != price || Math.abs(cents) >= 1L << 53) {
+            writeAscii(Double.toString(price));
+            return;
+        }
+        if (cents < 0) {
+            writeByte('-');
+            cents = -cents;
+        }
+        writeInt(cents / 100);
+        int fraction = (int)(cents % 100);
+        if (fraction != 0) {
+            buffer.put((byte)'.');
+            buffer.put((byte)('0' + fraction / 10));
+            if (fraction % 10 != 0)
+                buffer.put((byte)('0' + fraction % 10));
+        }
+    }
+
+    private void writeCsvString(String text) throws IOException {
+        if (text == null)
+            return;
+        boolean needsQuotes = false;
+        for (int i = 0; i < text.length() && !needsQuotes; i++) {
+            char c = text.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            writeUtf8(text);
+            return;
+        }
+        writeByte('"');
+        int start = 0;
+        int index;
+        while ((index = text.indexOf('"', start)) >= 0) {
+            writeUtf8(text, start, index + 1);
+            writeByte('"');
+            start = index + 1;
+        }
+        writeUtf8(text, start, text.length());
+        writeByte('"');
+    }
+
+    private void writeJsonString(String text) throws IOException {
+        if (text == null) {
+            writeAscii("null");
+            return;
+        }
+        writeByte('"');
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\')
+                continue;
+            writeUtf8(text, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    writeAscii("\\\"");
+                    break;
+                case '\\':
+                    writeAscii("\\\\");
+                    break;
+                case '\n':
+                    writeAscii("\\n");
+                    break;
+                case '\r':
+                    writeAscii("\\r");
+                    break;
+                case '\t':
+                    writeAscii("\\t");
+                    break;
+                default:
+                    ensureRoom(6);
+                    writeAscii("\\u00");
+                    buffer.put((byte)Character.forDigit(c >> 4, 16));
+                    buffer.put((byte)Character.forDigit(c & 0xF, 16));
+                    break;
+            }
+        }
+        writeUtf8(text, start, text.length());
+        writeByte('"');
+    }
+
+    private void writeUtf8(String text) throws IOException { writeUtf8(text, 0, text.length()); }
+
+    private void writeUtf8(String text, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            ensureRoom(4);
+            char c = text.charAt(i);
+            if (c < 0x80)
+                buffer.put((byte)c);
+            else if (c < 0x800) {
+                buffer.put((byte)(0xC0 | (c >> 6)));
+                buffer.put((byte)(0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte)(0xF0 | (codePoint >> 18)));
+                buffer.put((byte)(0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte)(0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte)(0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c))
+                buffer.put((byte)'?');
+            else {
+                buffer.put((byte)(0xE0 | (c >> 12)));
+                buffer.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte)(0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
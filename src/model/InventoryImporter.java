@@ -0,0 +1,861 @@
+package model;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Imports parts and products from CSV or JSON files.
+ *
+ * A CSV file starts with a header row which names its columns. A JSON file contains objects, either in an array or one per line (NDJSON). In
+ * both cases the recognized columns (or object keys) are: type (InHouse, Outsourced or Product), id, name, price, stock, min, max, machineId,
+ * companyName, and parts. The parts column of a product lists the identifiers of its associated parts, separated by spaces, commas or
+ * semicolons in a CSV file, or as an array in a JSON file. If the type is not given, it is taken from whichever of machineId, companyName and
+ * parts has a value.
+ *
+ * The file is read in batches of rows. While one batch is being read, the previous batch is parsed and validated in parallel on the common
+ * fork/join pool; the rows are then added to the inventory with one call each to addParts and addProducts. Rows that fail validation are
+ * reported and skipped, and do not stop the import.
+ *
+ * The values are validated with the same rules as the part and product edit screens. Products must have at least one part, and the sum of the
+ * prices of their parts cannot exceed the price of the product. The parts of a product are looked up first among the parts imported from the
+ * same file (by the identifier in the file, even if the part was given a different identifier when it was added), and then in the inventory,
+ * so parts must appear before the products which use them. A product which uses a part whose row was rejected is rejected as well, and two
+ * part rows with the same identifier are not allowed.
+ *
+ * @author Leonard T. Erwine
+ */
+public final class InventoryImporter {
+    /**
+     * The number of rows which are parsed and added to the inventory together.
+     */
+    public static final int BATCH_SIZE = 65536;
+
+    private static final int TYPE = 0;
+    private static final int ID = 1;
+    private static final int NAME = 2;
+    private static final int PRICE = 3;
+    private static final int STOCK = 4;
+    private static final int MIN = 5;
+    private static final int MAX = 6;
+    private static final int MACHINE_ID = 7;
+    private static final int COMPANY_NAME = 8;
+    private static final int PARTS = 9;
+    private static final String[] COLUMN_NAMES = { "type", "id", "name", "price", "stock", "min", "max", "machineId", "companyName", "parts" };
+    private static final HashMap<String, Integer> COLUMNS_BY_KEY = new HashMap<>();
+    private static final int READ_BUFFER_SIZE = 65536;
+    // Plain decimal numbers only; Double.parseDouble would also accept hexadecimal, "Infinity" and type suffixes such as 1.5d.
+    private static final Pattern DECIMAL = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    static {
+        for (int i = 0; i < COLUMN_NAMES.length; i++)
+            COLUMNS_BY_KEY.put(COLUMN_NAMES[i].toLowerCase(), i);
+        COLUMNS_BY_KEY.put("kind", TYPE);
+        COLUMNS_BY_KEY.put("cost", PRICE);
+        COLUMNS_BY_KEY.put("inventory", STOCK);
+        COLUMNS_BY_KEY.put("inv", STOCK);
+        COLUMNS_BY_KEY.put("company", COMPANY_NAME);
+        COLUMNS_BY_KEY.put("partids", PARTS);
+        COLUMNS_BY_KEY.put("associatedparts", PARTS);
+    }
+
+    private final Consumer<RowError> errorHandler;
+    private final ArrayList<RowError> errors = new ArrayList<>();
+    // The first part row for each identifier in the file, including rows that were rejected.
+    private final IntHashMap<Row> partRows = new IntHashMap<>();
+    private int rowCount = 0;
+    private int errorCount = 0;
+    private int partsAdded = 0;
+    private int productsAdded = 0;
+
+    private InventoryImporter(Consumer<RowError> errorHandler) { this.errorHandler = errorHandler; }
+
+    /**
+     * Imports the parts and products in a CSV or JSON file into the inventory.
+     *
+     * The rows are added to the inventory on the calling thread, which should be the thread that normally modifies the inventory.
+     *
+     * @param path The path of the file to import.
+     * @return The numbers of items that were added, and the rows that could not be imported.
+     * @throws IOException The file could not be read, or its contents could not be split into rows.
+     */
+    public static Result importFile(Path path) throws IOException { return importFile(path, null); }
+
+    /**
+     * Imports the parts and products in a CSV or JSON file into the inventory.
+     *
+     * The rows are added to the inventory on the calling thread, which should be the thread that normally modifies the inventory.
+     *
+     * @param path The path of the file to import.
+     * @param errorHandler Receives each row error as it is found, in row order, on the calling thread. If this is null, the errors are returned
+     * in the result instead.
+     * @return The numbers of items that were added, and the rows that could not be imported if there is no error handler.
+     * @throws IOException The file could not be read, or its contents could not be split into rows.
+     */
+    public static Result importFile(Path path, Consumer<RowError> errorHandler) throws IOException {
+        InventoryImporter importer = new InventoryImporter(errorHandler);
+        try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+            importer.run(new CharSource(reader));
+        }
+        return new Result(importer.rowCount, importer.partsAdded, importer.productsAdded, importer.errorCount,
+                Collections.unmodifiableList(importer.errors));
+    }
+
+    private void run(CharSource source) throws IOException {
+        RecordScanner scanner;
+        int first = source.peekNonWhitespace();
+        if (first < 0)
+            return;
+        if (first == '{' || first == '[')
+            scanner = new JsonScanner(source);
+        else {
+            CsvScanner csv = new CsvScanner(source);
+            if (!csv.readHeader())
+                return;
+            scanner = csv;
+        }
+
+        // Each batch is parsed while the next one is being read, then added on this thread in file order.
+        CompletableFuture<Row[]> parsing = null;
+        while (true) {
+            Batch batch = scanner.readBatch(BATCH_SIZE);
+            CompletableFuture<Row[]> next = (batch == null) ? null :
+                    CompletableFuture.supplyAsync(() -> parse(scanner, batch), ForkJoinPool.commonPool());
+            if (parsing != null)
+                insert(parsing.join());
+            if (next == null)
+                break;
+            parsing = next;
+        }
+    }
+
+    private static Row[] parse(RecordScanner scanner, Batch batch) {
+        Row[] rows = new Row[batch.size];
+        IntStream.range(0, batch.size).parallel().forEach((int i) -> {
+            Row row = new Row(batch.lines[i]);
+            try {
+                validate(row, scanner.split(batch.records[i]));
+            } catch (IllegalArgumentException ex) {
+                row.addError(null, ex.getMessage());
+            }
+            rows[i] = row;
+        });
+        return rows;
+    }
+
+    private static void validate(Row row, String[] values) {
+        String type = values[TYPE];
+        if (type == null || (type = type.trim()).isEmpty()) {
+            if (!isBlank(values[MACHINE_ID]))
+                type = "inhouse";
+            else if (!isBlank(values[COMPANY_NAME]))
+                type = "outsourced";
+            else
+                type = "product";
+        } else
+            type = type.replace("-", "").replace(" ", "").toLowerCase();
+
+        boolean isProduct;
+        switch (type) {
+            case "inhouse":
+            case "outsourced":
+                isProduct = false;
+                break;
+            case "product":
+                isProduct = true;
+                break;
+            default:
+                row.addError(COLUMN_NAMES[TYPE], "Type must be InHouse, Outsourced or Product.");
+                return;
+        }
+        row.isPart = !isProduct;
+
+        String name = values[NAME];
+        if (isBlank(name))
+            row.addError(COLUMN_NAMES[NAME], "Text cannot be empty.");
+        int id = -1;
+        if (!isBlank(values[ID])) {
+            Integer value = parseInteger(row, ID, values[ID]);
+            if (value != null)
+                id = value;
+        }
+        row.fileId = id;
+        Double price = parseDouble(row, PRICE, values[PRICE]);
+        Integer min = parseInteger(row, MIN, values[MIN]);
+        Integer max = parseInteger(row, MAX, values[MAX]);
+        Integer stock = parseInteger(row, STOCK, values[STOCK]);
+        if (max != null && min != null && min > max)
+            row.addError(COLUMN_NAMES[MAX], "Value cannot be less than " + COLUMN_NAMES[MIN] + ".");
+        if (stock != null) {
+            if (min != null && (max == null || max >= min) && stock < min)
+                row.addError(COLUMN_NAMES[STOCK], "Value cannot be less than " + COLUMN_NAMES[MIN] + ".");
+            else if (max != null && stock > max)
+                row.addError(COLUMN_NAMES[STOCK], "Value cannot be greater than " + COLUMN_NAMES[MAX] + ".");
+        }
+
+        Integer machineId = null;
+        String companyName = null;
+        int[] partIds = null;
+        switch (type) {
+            case "inhouse":
+                machineId = parseInteger(row, MACHINE_ID, values[MACHINE_ID]);
+                break;
+            case "outsourced":
+                if (isBlank(values[COMPANY_NAME]))
+                    row.addError(COLUMN_NAMES[COMPANY_NAME], "Text cannot be empty.");
+                else
+                    companyName = values[COMPANY_NAME].trim();
+                break;
+            default:
+                partIds = parsePartIds(row, values[PARTS]);
+                break;
+        }
+        if (row.errors != null)
+            return;
+
+        // The constructors make the final checks, such as requiring the maximum to be greater than the minimum.
+        try {
+            if (isProduct) {
+                row.product = new Product(id, name, price, stock, min, max);
+                row.partIds = partIds;
+            } else
+                row.part = (machineId != null) ? new InHouse(id, name, price, stock, min, max, machineId) :
+                        new Outsourced(id, name, price, stock, min, max, companyName);
+        } catch (RuntimeException ex) {
+            row.addError(null, ex.getMessage());
+        }
+    }
+
+    private static boolean isBlank(String value) { return value == null || value.trim().isEmpty(); }
+
+    private static Integer parseInteger(Row row, int column, String text) {
+        if (isBlank(text)) {
+            row.addError(COLUMN_NAMES[column], "Value cannot be empty.");
+            return null;
+        }
+        int value;
+        try {
+            value = Integer.parseInt(text.trim());
+        } catch (NumberFormatException ex) {
+            row.addError(COLUMN_NAMES[column], "Invalid number value.");
+            return null;
+        }
+        if (value < 0) {
+            row.addError(COLUMN_NAMES[column], "Value cannot be less than zero.");
+            return null;
+        }
+        return value;
+    }
+
+    private static Double parseDouble(Row row, int column, String text) {
+        if (isBlank(text)) {
+            row.addError(COLUMN_NAMES[column], "Value cannot be empty.");
+            return null;
+        }
+        double value;
+        String trimmed = text.trim();
+        if (!DECIMAL.matcher(trimmed).matches()) {
+            row.addError(COLUMN_NAMES[column], "Invalid number value.");
+            return null;
+        }
+        try {
+            value = Double.parseDouble(trimmed);
+        } catch (NumberFormatException ex) {
+            row.addError(COLUMN_NAMES[column], "Invalid number value.");
+            return null;
+        }
+        if (value < 0.0 || Double.isNaN(value)) {
+            row.addError(COLUMN_NAMES[column], "Price cannot be less than zero.");
+            return null;
+        }
+        // Values such as 1e400 are too large and overflow to infinity.
+        if (Double.isInfinite(value)) {
+            row.addError(COLUMN_NAMES[column], "Invalid number value.");
+            return null;
+        }
+        return value;
+    }
+
+    private static int[] parsePartIds(Row row, String text) {
+        if (isBlank(text)) {
+            row.addError(COLUMN_NAMES[PARTS], "Products must have at least one part.");
+            return null;
+        }
+        String[] items = text.trim().split("[\\s,;]+");
+        int[] result = new int[items.length];
+        int count = 0;
+        for (String item : items) {
+            if (item.isEmpty())
+                continue;
+            try {
+                result[count++] = Integer.parseInt(item);
+            } catch (NumberFormatException ex) {
+                row.addError(COLUMN_NAMES[PARTS], "\"" + item + "\" is not a valid part id.");
+                return null;
+            }
+        }
+        if (count == 0) {
+            row.addError(COLUMN_NAMES[PARTS], "Products must have at least one part.");
+            return null;
+        }
+        return (count == result.length) ? result : Arrays.copyOf(result, count);
+    }
+
+    private void insert(Row[] rows) {
+        rowCount += rows.length;
+        Inventory.update(() -> {
+            // Parts are added first, so that products in the same batch can use them.
+            ArrayList<Part> parts = new ArrayList<>();
+            HashSet<String> names = (Inventory.isUniquePartNamesRequired()) ? new HashSet<>() : null;
+            for (Row row : rows) {
+                if (!row.isPart)
+                    continue;
+                Part part = row.part;
+                // Rows that failed validation are recorded too, so that products which use them are rejected rather than being given an
+                // unrelated inventory part with the same id.
+                if (row.fileId >= 0 && partRows.putIfAbsent(row.fileId, row) != null) {
+                    if (part != null) {
+                        row.addError(COLUMN_NAMES[ID], "Another part in the file has the same id.");
+                        row.part = null;
+                    }
+                    continue;
+                }
+                if (part == null)
+                    continue;
+                if (names != null && (Inventory.lookupPart(part.getName()) != null || !names.add(NameIndex.toKey(part.getName())))) {
+                    row.addError(COLUMN_NAMES[NAME], "Another part already has the same name.");
+                    row.part = null;
+                    continue;
+                }
+                parts.add(part);
+            }
+            if (!parts.isEmpty()) {
+                Inventory.addParts(parts);
+                partsAdded += parts.size();
+            }
+
+            ArrayList<Product> products = new ArrayList<>();
+            names = (Inventory.isUniqueProductNamesRequired()) ? new HashSet<>() : null;
+            for (Row row : rows) {
+                Product product = row.product;
+                if (product == null)
+                    continue;
+                if (names != null && (Inventory.lookupProduct(product.getName()) != null ||
+                        !names.add(NameIndex.toKey(product.getName())))) {
+                    row.addError(COLUMN_NAMES[NAME], "Another product already has the same name.");
+                    continue;
+                }
+                ArrayList<Part> associated = new ArrayList<>(row.partIds.length);
+                HashSet<Part> seen = new HashSet<>();
+                double priceSum = 0.0;
+                for (int partId : row.partIds) {
+                    Row partRow = partRows.get(partId);
+                    Part part;
+                    if (partRow != null) {
+                        if ((part = partRow.part) == null) {
+                            row.addError(COLUMN_NAMES[PARTS], "Part " + partId + " was rejected on line " + partRow.line + ".");
+                            break;
+                        }
+                    } else if ((part = Inventory.lookupPart(partId)) == null) {
+                        row.addError(COLUMN_NAMES[PARTS], "Part " + partId + " was not found.");
+                        break;
+                    }
+                    // A product can't have the same part twice, the same as when parts are added in the editor.
+                    if (!seen.add(part)) {
+                        row.addError(COLUMN_NAMES[PARTS], "Part " + partId + " is listed more than once.");
+                        break;
+                    }
+                    associated.add(part);
+                    priceSum += part.getPrice();
+                }
+                if (row.errors != null)
+                    continue;
+                if (priceSum > product.getPrice()) {
+                    row.addError(COLUMN_NAMES[PRICE], "The sum of the price/cost of the associated parts cannot exceed the price of the product.");
+                    continue;
+                }
+                product.setAllAssociatedParts(associated);
+                products.add(product);
+            }
+            if (!products.isEmpty()) {
+                Inventory.addProducts(products);
+                productsAdded += products.size();
+            }
+        });
+
+        for (Row row : rows) {
+            if (row.errors == null)
+                continue;
+            for (RowError error : row.errors) {
+                errorCount++;
+                if (errorHandler == null)
+                    errors.add(error);
+                else
+                    errorHandler.accept(error);
+            }
+        }
+    }
+
+    /**
+     * Describes a problem with one row of an imported file.
+     */
+    public static final class RowError {
+        private final int line;
+        private final String column;
+        private final String message;
+
+        RowError(int line, String column, String message) {
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        /**
+         * Gets the line of the file where the row starts.
+         *
+         * @return The 1-based line number.
+         */
+        public int getLine() { return line; }
+
+        /**
+         * Gets the column which has the error.
+         *
+         * @return The name of the column, or null if the error is not about one column.
+         */
+        public String getColumn() { return column; }
+
+        /**
+         * Gets the description of the error.
+         *
+         * @return The error message.
+         */
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return (column == null) ? "Line " + line + ": " + message : "Line " + line + ", " + column + ": " + message;
+        }
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public static final class Result {
+        private final int rowCount;
+        private final int partsAdded;
+        private final int productsAdded;
+        private final int errorCount;
+        private final List<RowError> errors;
+
+        Result(int rowCount, int partsAdded, int productsAdded, int errorCount, List<RowError> errors) {
+            this.rowCount = rowCount;
+            this.partsAdded = partsAdded;
+            this.productsAdded = productsAdded;
+            this.errorCount = errorCount;
+            this.errors = errors;
+        }
+
+        /**
+         * Gets the number of rows that were read from the file, not including a CSV header row.
+         *
+         * @return The number of rows.
+         */
+        public int getRowCount() { return rowCount; }
+
+        /**
+         * Gets the number of parts that were added to the inventory.
+         *
+         * @return The number of parts.
+         */
+        public int getPartsAdded() { return partsAdded; }
+
+        /**
+         * Gets the number of products that were added to the inventory.
+         *
+         * @return The number of products.
+         */
+        public int getProductsAdded() { return productsAdded; }
+
+        /**
+         * Gets the number of errors that were found, including those that were passed to an error handler.
+         *
+         * @return The number of errors.
+         */
+        public int getErrorCount() { return errorCount; }
+
+        /**
+         * Gets the errors that were found, in row order.
+         *
+         * @return The errors, or an empty list if they were passed to an error handler.
+         */
+        public List<RowError> getErrors() { return errors; }
+    }
+
+    private static class Row {
+        private final int line;
+        private Part part = null;
+        private Product product = null;
+        private int[] partIds = null;
+        private boolean isPart = false;
+        private int fileId = -1;
+        private ArrayList<RowError> errors = null;
+
+        Row(int line) { this.line = line; }
+
+        void addError(String column, String message) {
+            if (errors == null)
+                errors = new ArrayList<>(1);
+            errors.add(new RowError(line, column, message));
+        }
+    }
+
+    private static class Batch {
+        private final String[] records;
+        private final int[] lines;
+        private int size = 0;
+
+        Batch(int capacity) {
+            records = new String[capacity];
+            lines = new int[capacity];
+        }
+    }
+
+    /**
+     * Reads characters in large blocks, keeping track of the current line.
+     */
+    private static class CharSource {
+        private final Reader reader;
+        private final char[] buffer = new char[READ_BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+        private int line = 1;
+
+        CharSource(Reader reader) { this.reader = reader; }
+
+        int peek() throws IOException {
+            if (position == limit) {
+                int count;
+                do {
+                    count = reader.read(buffer, 0, buffer.length);
+                } while (count == 0);
+                if (count < 0)
+                    return -1;
+                position = 0;
+                limit = count;
+            }
+            return buffer[position];
+        }
+
+        int read() throws IOException {
+            int c = peek();
+            if (c >= 0) {
+                position++;
+                if (c == '\n')
+                    line++;
+            }
+            return c;
+        }
+
+        int peekNonWhitespace() throws IOException {
+            int c;
+            while ((c = peek()) >= 0 && (Character.isWhitespace(c) || c == '\uFEFF'))
+                read();
+            return c;
+        }
+    }
+
+    /**
+     * Splits a file into rows, and rows into column values.
+     */
+    private static abstract class RecordScanner {
+        protected final CharSource source;
+        protected final StringBuilder builder = new StringBuilder();
+
+        RecordScanner(CharSource source) { this.source = source; }
+
+        /**
+         * Reads the text of the next row.
+         *
+         * @return The text of the row, or null if there are no more rows.
+         */
+        abstract String next() throws IOException;
+
+        /**
+         * Splits the text of a row into its column values. This is called from multiple threads at once.
+         *
+         * @param record The text of the row.
+         * @return The values of the columns, with nulls for missing values.
+         * @throws IllegalArgumentException The text is not valid.
+         */
+        abstract String[] split(String record) throws IllegalArgumentException;
+
+        Batch readBatch(int capacity) throws IOException {
+            Batch batch = new Batch(capacity);
+            while (batch.size < capacity) {
+                source.peekNonWhitespace();
+                int line = source.line;
+                String record = next();
+                if (record == null)
+                    break;
+                batch.lines[batch.size] = line;
+                batch.records[batch.size++] = record;
+            }
+            return (batch.size == 0) ? null : batch;
+        }
+    }
+
+    private static class CsvScanner extends RecordScanner {
+        // The column of each field in a row, or -1 if it is not recognized.
+        private int[] columns;
+
+        CsvScanner(CharSource source) { super(source); }
+
+        boolean readHeader() throws IOException {
+            String header = next();
+            if (header == null)
+                return false;
+            String[] names = splitFields(header);
+            columns = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                Integer column = COLUMNS_BY_KEY.get(normalizeKey(names[i]));
+                columns[i] = (column == null) ? -1 : column;
+            }
+            return true;
+        }
+
+        @Override
+        String next() throws IOException {
+            builder.setLength(0);
+            boolean quoted = false;
+            int c;
+            while ((c = source.read()) >= 0) {
+                if (c == '"')
+                    quoted = !quoted;
+                else if (!quoted) {
+                    if (c == '\n') {
+                        if (builder.length() > 0)
+                            return builder.toString();
+                        continue;
+                    }
+                    if (c == '\r')
+                        continue;
+                }
+                builder.append((char)c);
+            }
+            if (quoted)
+                throw new IOException("Unterminated quoted value at end of file.");
+            return (builder.length() > 0) ? builder.toString() : null;
+        }
+
+        @Override
+        String[] split(String record) {
+            String[] fields = splitFields(record);
+            String[] values = new String[COLUMN_NAMES.length];
+            for (int i = 0; i < fields.length && i < columns.length; i++) {
+                if (columns[i] >= 0)
+                    values[columns[i]] = fields[i];
+            }
+            return values;
+        }
+
+        private static String[] splitFields(String record) {
+            ArrayList<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int length = record.length();
+            for (int i = 0; i < length; i++) {
+                char c = record.charAt(i);
+                if (quoted) {
+                    if (c != '"')
+                        field.append(c);
+                    else if (i + 1 < length && record.charAt(i + 1) == '"')
+                        field.append(record.charAt(++i));
+                    else
+                        quoted = false;
+                } else if (c == '"')
+                    quoted = true;
+                else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else
+                    field.append(c);
+            }
+            fields.add(field.toString());
+            return fields.toArray(new String[fields.size()]);
+        }
+    }
+
+    private static class JsonScanner extends RecordScanner {
+        JsonScanner(CharSource source) { super(source); }
+
+        @Override
+        String next() throws IOException {
+            // Skip the enclosing array and the separators between objects.
+            int c;
+            while ((c = source.peekNonWhitespace()) == '[' || c == ']' || c == ',')
+                source.read();
+            if (c < 0)
+                return null;
+            if (c != '{')
+                throw new IOException("Expected an object at line " + source.line + ".");
+            builder.setLength(0);
+            int depth = 0;
+            boolean quoted = false;
+            while ((c = source.read()) >= 0) {
+                builder.append((char)c);
+                if (quoted) {
+                    if (c == '\\') {
+                        if ((c = source.read()) < 0)
+                            break;
+                        builder.append((char)c);
+                    } else if (c == '"')
+                        quoted = false;
+                } else if (c == '"')
+                    quoted = true;
+                else if (c == '{' || c == '[')
+                    depth++;
+                else if ((c == '}' || c == ']') && --depth == 0)
+                    return builder.toString();
+            }
+            throw new IOException("Unterminated object at end of file.");
+        }
+
+        @Override
+        String[] split(String record) {
+            return new JsonObjectParser(record).parse();
+        }
+    }
+
+    /**
+     * Parses a JSON object whose values are strings, numbers, booleans, nulls, or arrays of those.
+     */
+    private static class JsonObjectParser {
+        private final String text;
+        private int position = 0;
+
+        JsonObjectParser(String text) { this.text = text; }
+
+        String[] parse() {
+            String[] values = new String[COLUMN_NAMES.length];
+            expect('{');
+            if (peek() == '}') {
+                position++;
+                return values;
+            }
+            do {
+                String key = parseString();
+                expect(':');
+                String value = parseValue();
+                Integer column = COLUMNS_BY_KEY.get(normalizeKey(key));
+                if (column != null)
+                    values[column] = value;
+            } while (accept(','));
+            expect('}');
+            return values;
+        }
+
+        private String parseValue() {
+            char c = peek();
+            if (c == '"')
+                return parseString();
+            if (c == '[') {
+                position++;
+                StringBuilder items = new StringBuilder();
+                if (accept(']'))
+                    return "";
+                do {
+                    String item = parseValue();
+                    if (items.length() > 0)
+                        items.append(' ');
+                    if (item != null)
+                        items.append(item);
+                } while (accept(','));
+                expect(']');
+                return items.toString();
+            }
+            if (c == '{')
+                throw new IllegalArgumentException("Nested objects are not supported.");
+            int start = position;
+            while (position < text.length() && "-+.0123456789eEtruefalsn".indexOf(text.charAt(position)) >= 0)
+                position++;
+            String literal = text.substring(start, position);
+            if (literal.isEmpty())
+                throw new IllegalArgumentException("Invalid JSON value at offset " + start + ".");
+            return (literal.equals("null")) ? null : literal;
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder result = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"')
+                    return result.toString();
+                if (c != '\\') {
+                    result.append(c);
+                    continue;
+                }
+                if (position >= text.length())
+                    break;
+                c = text.charAt(position++);
+                switch (c) {
+                    case 'b': result.append('\b'); break;
+                    case 'f': result.append('\f'); break;
+                    case 'n': result.append('\n'); break;
+                    case 'r': result.append('\r'); break;
+                    case 't': result.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length())
+                            throw new IllegalArgumentException("Invalid JSON escape sequence.");
+                        try {
+                            result.append((char)Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("Invalid JSON escape sequence.");
+                        }
+                        position += 4;
+                        break;
+                    default: result.append(c); break;
+                }
+            }
+            throw new IllegalArgumentException("Unterminated JSON string.");
+        }
+
+        private char peek() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+                position++;
+            if (position >= text.length())
+                throw new IllegalArgumentException("Unexpected end of JSON object.");
+            return text.charAt(position);
+        }
+
+        private boolean accept(char c) {
+            if (peek() != c)
+                return false;
+            position++;
+            return true;
+        }
+
+        private void expect(char c) {
+            if (!accept(c))
+                throw new IllegalArgumentException("Expected '" + c + "' at offset " + position + ".");
+        }
+    }
+
+    private static String normalizeKey(String name) {
+        return name.trim().replace("_", "").replace("-", "").replace(" ", "").toLowerCase();
+    }
+}
@@ -0,0 +1,692 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * Append-only journal of changes to the inventory, so the inventory can be rebuilt when the application is restarted.
+ *
+ * Every part and product that is added, changed or deleted, and every change to the parts associated with a product, is appended to the
+ * journal as a record. Records are encoded on the thread that made the change and handed to a dedicated writer thread, which writes everything
+ * that has accumulated since its last write and then forces it to disk with a single sync. Many changes therefore share the cost of each sync,
+ * and threads that make changes never wait for the disk unless they call sync().
+ *
+ * Each record is length-prefixed and followed by a CRC-32 checksum, so a record that was only partly written when the application stopped is
+ * detected and discarded when the journal is replayed.
+ *
+ * A checkpoint saves the whole inventory to a snapshot file and empties the journal. Each checkpoint starts a new journal generation, which is
+ * recorded in both files, so a journal whose changes are already included in the snapshot is never replayed on top of it.
+ *
+ * @author Leonard T. Erwine
+ */
+public final class InventoryJournal implements Closeable {
+    private static final Logger LOG = Logger.getLogger(InventoryJournal.class.getName());
+    private static final int MAGIC = 0x494D534A;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    // Version 1 journals have no generation number, and are treated as generation zero.
+    private static final int V1_HEADER_SIZE = 8;
+
+    // Record types
+    private static final byte PART_PUT = 1;
+    private static final byte PART_DELETE = 2;
+    private static final byte PART_ID = 3;
+    private static final byte PRODUCT_PUT = 4;
+    private static final byte PRODUCT_DELETE = 5;
+    private static final byte PRODUCT_ID = 6;
+    private static final byte PRODUCT_PARTS = 7;
+
+    private static final byte KIND_INHOUSE = 0;
+    private static final byte KIND_OUTSOURCED = 1;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    // Threads that make changes wait when this much has accumulated, so a slow disk can't exhaust the heap.
+    private static final int MAX_PENDING_BYTES = 16 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long replayedRecordCount;
+    private long generation;
+    private final Object lock = new Object();
+    private final CRC32 checksum = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long appendedRecordCount = 0L;
+    private long durableRecordCount = 0L;
+    private IOException failure = null;
+    private boolean closed = false;
+    private final Thread writerThread;
+    private final IdentityHashMap<Product, ListChangeListener<Part>> associationListeners = new IdentityHashMap<>();
+
+    private final ItemChangeListener<Part> partChangeListener = new ItemChangeListener<Part>() {
+        @Override
+        public void intChanged(Part part, String propertyName, int oldValue, int newValue) {
+            if (ModelHelper.PROP_ID.equals(propertyName))
+                appendIdChange(PART_ID, oldValue, part.getId());
+            else
+                appendPart(part);
+        }
+
+        @Override
+        public void changed(Part part, String propertyName) { appendPart(part); }
+    };
+
+    private final ItemChangeListener<Product> productChangeListener = new ItemChangeListener<Product>() {
+        @Override
+        public void intChanged(Product product, String propertyName, int oldValue, int newValue) {
+            if (ModelHelper.PROP_ID.equals(propertyName))
+                appendIdChange(PRODUCT_ID, oldValue, product.getId());
+            else
+                appendProduct(product);
+        }
+
+        @Override
+        public void changed(Product product, String propertyName) { appendProduct(product); }
+    };
+
+    private final ListChangeListener<Part> allPartsListener = (ListChangeListener.Change<? extends Part> change) -> {
+        while (change.next()) {
+            if (change.wasPermutated())
+                continue;
+            for (Part part : change.getRemoved()) {
+                part.removeChangeListener(partChangeListener);
+                appendDelete(PART_DELETE, part.getId());
+            }
+            for (Part part : change.getAddedSubList()) {
+                appendPart(part);
+                part.addChangeListener(partChangeListener);
+            }
+        }
+    };
+
+    private final ListChangeListener<Product> allProductsListener = (ListChangeListener.Change<? extends Product> change) -> {
+        while (change.next()) {
+            if (change.wasPermutated())
+                continue;
+            for (Product product : change.getRemoved()) {
+                stopWatching(product);
+                appendDelete(PRODUCT_DELETE, product.getId());
+            }
+            for (Product product : change.getAddedSubList()) {
+                appendProduct(product);
+                List<Part> parts = product.getAllAssociatedParts();
+                if (!parts.isEmpty())
+                    appendAssociatedParts(product.getId(), 0, 0, parts);
+                startWatching(product);
+            }
+        }
+    };
+
+    private InventoryJournal(FileChannel channel, long generation, long replayedRecordCount) {
+        this.channel = channel;
+        this.generation = generation;
+        this.replayedRecordCount = replayedRecordCount;
+        writerThread = new Thread(this::runWriter, "Inventory journal writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Inventory.update(() -> {
+            for (Part part : Inventory.getAllParts())
+                part.addChangeListener(partChangeListener);
+            for (Product product : Inventory.getAllProducts())
+                startWatching(product);
+            Inventory.getAllParts().addListener(allPartsListener);
+            Inventory.getAllProducts().addListener(allProductsListener);
+        });
+    }
+
+    /**
+     * Opens a journal file, replays its records into the inventory, and starts journaling all later changes to the inventory.
+     *
+     * This should be called before anything else is added to the inventory; items that are already in the inventory are only journaled when
+     * they are next changed.
+     *
+     * @param path The path of the journal file. It is created if it does not exist.
+     * @return The opened journal.
+     * @throws IOException The file could not be opened or read, or it is not an inventory journal.
+     */
+    public static InventoryJournal open(Path path) throws IOException { return open(path, null); }
+
+    /**
+     * Loads a snapshot file, if there is one, then opens a journal file and replays the changes which were made after the snapshot was saved,
+     * and starts journaling all later changes to the inventory.
+     *
+     * This should be called before anything else is added to the inventory; items that are already in the inventory are only journaled when
+     * they are next changed.
+     *
+     * @param path The path of the journal file. It is created if it does not exist.
+     * @param snapshotPath The path of the snapshot file which is saved by checkpoint(), or null to only use the journal.
+     * @return The opened journal.
+     * @throws IOException The snapshot or journal could not be read, or either is not in the expected format.
+     */
+    public static InventoryJournal open(Path path, Path snapshotPath) throws IOException {
+        long generation = 0L;
+        if (snapshotPath != null && Files.exists(snapshotPath))
+            generation = InventorySnapshotFile.read(snapshotPath);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long replayed = 0L;
+            long end;
+            long[] header = (channel.size() == 0) ? null : readHeader(channel);
+            if (header == null || header[0] < generation) {
+                // Every change in an older journal is already in the snapshot.
+                if (header != null)
+                    LOG.log(Level.INFO, "Discarding inventory journal generation {0}, which is included in the snapshot.", header[0]);
+                end = writeHeader(channel, generation);
+            } else {
+                if (header[0] > generation && snapshotPath != null)
+                    LOG.log(Level.WARNING, "The inventory snapshot is older than the journal; some changes may be missing.");
+                generation = header[0];
+                long[] result = replay(channel, header[1]);
+                replayed = result[0];
+                end = result[1];
+                // Discard a record that was only partly written.
+                if (end < channel.size()) {
+                    LOG.log(Level.WARNING, "Discarding {0} bytes of incomplete records at the end of the inventory journal.",
+                            channel.size() - end);
+                    channel.truncate(end);
+                }
+            }
+            channel.position(end);
+            return new InventoryJournal(channel, generation, replayed);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Saves the current contents of the inventory to a snapshot file and empties the journal, so the journal does not grow without limit.
+     *
+     * Changes to the inventory wait until the checkpoint is finished. If the application stops before the journal is emptied, the journal is
+     * discarded the next time it is opened, because the snapshot is marked as continuing from a newer journal generation.
+     *
+     * @param snapshotPath The path of the snapshot file, which should be passed to open(Path, Path) the next time the journal is opened.
+     * @throws IOException The snapshot or journal could not be written.
+     */
+    public void checkpoint(Path snapshotPath) throws IOException {
+        IOException[] error = new IOException[1];
+        Inventory.update(() -> {
+            synchronized (lock) {
+                try {
+                    // Anything not yet written is included in the snapshot, so wait until the writer is idle before replacing the journal.
+                    while (durableRecordCount < appendedRecordCount && failure == null)
+                        lock.wait();
+                    if (failure != null)
+                        throw new IOException("The inventory journal could not be written.", failure);
+                    if (closed)
+                        throw new IOException("The inventory journal is closed.");
+                    long next = generation + 1;
+                    InventorySnapshotFile.write(Inventory.getSnapshot(), next, snapshotPath);
+                    writeHeader(channel, next);
+                    generation = next;
+                } catch (IOException ex) {
+                    error[0] = ex;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    error[0] = new InterruptedIOException();
+                }
+            }
+        });
+        if (error[0] != null)
+            throw error[0];
+    }
+
+    /**
+     * Gets the number of records that were replayed into the inventory when the journal was opened.
+     *
+     * @return The number of replayed records, which is zero if the journal was empty.
+     */
+    public long getReplayedRecordCount() { return replayedRecordCount; }
+
+    /**
+     * Waits until every change that has been journaled so far has been forced to disk.
+     *
+     * @throws IOException The journal could not be written.
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appendedRecordCount;
+            while (durableRecordCount < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            if (failure != null)
+                throw new IOException("The inventory journal could not be written.", failure);
+        }
+    }
+
+    /**
+     * Stops journaling changes, writes any that are outstanding and closes the journal file.
+     *
+     * @throws IOException The journal could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        Inventory.update(() -> {
+            Inventory.getAllParts().removeListener(allPartsListener);
+            Inventory.getAllProducts().removeListener(allProductsListener);
+            for (Part part : Inventory.getAllParts())
+                part.removeChangeListener(partChangeListener);
+            for (Product product : new ArrayList<>(associationListeners.keySet()))
+                stopWatching(product);
+        });
+        synchronized (lock) {
+            if (closed)
+                return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            channel.close();
+        }
+        if (failure != null)
+            throw new IOException("The inventory journal could not be written.", failure);
+    }
+
+    private void startWatching(Product product) {
+        ListChangeListener<Part> listener = (ListChangeListener.Change<? extends Part> change) -> {
+            int productId = product.getId();
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    ObservableList<? extends Part> list = change.getList();
+                    appendAssociatedParts(productId, 0, list.size(), list);
+                } else
+                    appendAssociatedParts(productId, change.getFrom(), change.getRemovedSize(), change.getAddedSubList());
+            }
+        };
+        associationListeners.put(product, listener);
+        product.getAllAssociatedParts().addListener(listener);
+        product.addChangeListener(productChangeListener);
+    }
+
+    private void stopWatching(Product product) {
+        ListChangeListener<Part> listener = associationListeners.remove(product);
+        if (listener != null)
+            product.getAllAssociatedParts().removeListener(listener);
+        product.removeChangeListener(productChangeListener);
+    }
+
+    // Encoding
+
+    private static byte[] encodeString(String value) { return (value == null) ? new byte[0] : value.getBytes(StandardCharsets.UTF_8); }
+
+    private void appendPart(Part part) {
+        byte[] name = encodeString(part.getName());
+        byte[] companyName = (part instanceof Outsourced) ? encodeString(((Outsourced)part).getCompanyName()) : null;
+        synchronized (lock) {
+            int start = beginRecord(PART_PUT, 34 + name.length + ((companyName == null) ? 0 : companyName.length));
+            if (start < 0)
+                return;
+            pending.putInt(part.getId());
+            pending.put((companyName == null) ? KIND_INHOUSE : KIND_OUTSOURCED);
+            pending.putInt(name.length).put(name);
+            pending.putDouble(part.getPrice()).putInt(part.getStock()).putInt(part.getMin()).putInt(part.getMax());
+            if (companyName == null)
+                pending.putInt(((InHouse)part).getMachineId());
+            else
+                pending.putInt(companyName.length).put(companyName);
+            endRecord(start);
+        }
+    }
+
+    private void appendProduct(Product product) {
+        byte[] name = encodeString(product.getName());
+        synchronized (lock) {
+            int start = beginRecord(PRODUCT_PUT, 28 + name.length);
+            if (start < 0)
+                return;
+            pending.putInt(product.getId());
+            pending.putInt(name.length).put(name);
+            pending.putDouble(product.getPrice()).putInt(product.getStock()).putInt(product.getMin()).putInt(product.getMax());
+            endRecord(start);
+        }
+    }
+
+    private void appendDelete(byte type, int id) {
+        synchronized (lock) {
+            int start = beginRecord(type, 4);
+            if (start < 0)
+                return;
+            pending.putInt(id);
+            endRecord(start);
+        }
+    }
+
+    private void appendIdChange(byte type, int oldId, int newId) {
+        synchronized (lock) {
+            int start = beginRecord(type, 8);
+            if (start < 0)
+                return;
+            pending.putInt(oldId).putInt(newId);
+            endRecord(start);
+        }
+    }
+
+    private void appendAssociatedParts(int productId, int from, int removedCount, List<? extends Part> added) {
+        synchronized (lock) {
+            int start = beginRecord(PRODUCT_PARTS, 16 + added.size() * 4);
+            if (start < 0)
+                return;
+            pending.putInt(productId).putInt(from).putInt(removedCount).putInt(added.size());
+            for (Part part : added)
+                pending.putInt(part.getId());
+            endRecord(start);
+        }
+    }
+
+    /**
+     * Starts a new record in the pending buffer. Must be called while holding the lock.
+     *
+     * @return The position of the start of the record or -1 if the journal is no longer accepting records.
+     */
+    private int beginRecord(byte type, int payloadSize) {
+        while (pending.position() >= MAX_PENDING_BYTES && failure == null && !closed) {
+            try {
+                lock.wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (failure != null || closed)
+            return -1;
+        int needed = payloadSize + 9;
+        if (pending.remaining() < needed) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() << 1, pending.position() + needed));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        int start = pending.position();
+        pending.putInt(0).put(type);
+        return start;
+    }
+
+    /**
+     * Fills in the length and checksum of the record that was started with beginRecord. Must be called while holding the lock.
+     */
+    private void endRecord(int start) {
+        int length = pending.position() - start - 4;
+        pending.putInt(start, length);
+        checksum.reset();
+        checksum.update(pending.array(), start + 4, length);
+        pending.putInt((int)checksum.getValue());
+        appendedRecordCount++;
+        // Only the writer waits for an empty buffer to be filled.
+        if (start == 0)
+            lock.notifyAll();
+    }
+
+    // Writing
+
+    private void runWriter() {
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        // Only close() stops the writer.
+                    }
+                }
+                if (pending.position() == 0)
+                    return;
+                batch = pending;
+                pending = spare;
+                spare = null;
+                batchEnd = appendedRecordCount;
+                // Threads waiting for room in the pending buffer can continue.
+                lock.notifyAll();
+            }
+            try {
+                batch.flip();
+                while (batch.hasRemaining())
+                    channel.write(batch);
+                channel.force(false);
+            } catch (IOException ex) {
+                LOG.log(Level.SEVERE, "The inventory journal could not be written.", ex);
+                synchronized (lock) {
+                    failure = ex;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            batch.clear();
+            synchronized (lock) {
+                spare = (batch.capacity() > MAX_PENDING_BYTES << 1) ? ByteBuffer.allocate(INITIAL_BUFFER_SIZE) : batch;
+                durableRecordCount = batchEnd;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Replay
+
+    /**
+     * Reads the header of a journal file.
+     *
+     * @return The generation of the journal and the size of its header.
+     */
+    private static long[] readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) { }
+        header.flip();
+        if (header.remaining() < V1_HEADER_SIZE || header.getInt() != MAGIC)
+            throw new IOException("The file is not an inventory journal.");
+        int version = header.getInt();
+        if (version == 1)
+            return new long[] { 0L, V1_HEADER_SIZE };
+        if (version != FORMAT_VERSION || header.remaining() < 8)
+            throw new IOException("Unsupported inventory journal version " + version + ".");
+        return new long[] { header.getLong(), HEADER_SIZE };
+    }
+
+    /**
+     * Empties a journal file and writes a new header.
+     *
+     * @return The size of the header.
+     */
+    private static long writeHeader(FileChannel channel, long generation) throws IOException {
+        channel.truncate(0L);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        channel.position(0L);
+        while (header.hasRemaining())
+            channel.write(header);
+        channel.force(true);
+        return HEADER_SIZE;
+    }
+
+    /**
+     * Applies the records of a journal to the inventory.
+     *
+     * @return The number of records that were read, and the file position of the end of the last complete record.
+     */
+    private static long[] replay(FileChannel channel, long start) throws IOException {
+        channel.position(start);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), INITIAL_BUFFER_SIZE));
+        long size = channel.size();
+        long position = start;
+        long count = 0L;
+        byte[] record = new byte[256];
+        CRC32 crc = new CRC32();
+        while (position + 4 <= size) {
+            int length;
+            try {
+                length = input.readInt();
+                if (length < 1 || position + 8 + length > size)
+                    break;
+                if (record.length < length)
+                    record = new byte[Math.max(length, record.length << 1)];
+                input.readFully(record, 0, length);
+                crc.reset();
+                crc.update(record, 0, length);
+                if (input.readInt() != (int)crc.getValue())
+                    break;
+            } catch (EOFException ex) {
+                break;
+            }
+            try {
+                apply(ByteBuffer.wrap(record, 0, length));
+            } catch (RuntimeException | InvalidKeyException ex) {
+                LOG.log(Level.WARNING, "Skipping inventory journal record that could not be applied.", ex);
+            }
+            position += 8 + length;
+            count++;
+        }
+        return new long[] { count, position };
+    }
+
+    private static String decodeString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void apply(ByteBuffer record) throws InvalidKeyException {
+        byte type = record.get();
+        switch (type) {
+            case PART_PUT:
+                applyPart(record);
+                break;
+            case PART_DELETE: {
+                // Removing a part from the products that use it was journaled separately, so this must not cascade.
+                Part part = Inventory.lookupPart(record.getInt());
+                if (part != null)
+                    Inventory.getAllParts().remove(part);
+                break;
+            }
+            case PART_ID: {
+                Part part = Inventory.lookupPart(record.getInt());
+                int newId = record.getInt();
+                if (part != null)
+                    part.setId(newId);
+                break;
+            }
+            case PRODUCT_PUT:
+                applyProduct(record);
+                break;
+            case PRODUCT_DELETE: {
+                Product product = Inventory.lookupProduct(record.getInt());
+                if (product != null)
+                    Inventory.getAllProducts().remove(product);
+                break;
+            }
+            case PRODUCT_ID: {
+                Product product = Inventory.lookupProduct(record.getInt());
+                int newId = record.getInt();
+                if (product != null)
+                    product.setId(newId);
+                break;
+            }
+            case PRODUCT_PARTS:
+                applyAssociatedParts(record);
+                break;
+            default:
+                throw new IllegalStateException("Unknown inventory journal record type " + type + ".");
+        }
+    }
+
+    private static void applyPart(ByteBuffer record) {
+        int id = record.getInt();
+        byte kind = record.get();
+        String name = decodeString(record);
+        double price = record.getDouble();
+        int stock = record.getInt();
+        int min = record.getInt();
+        int max = record.getInt();
+        int machineId = 0;
+        String companyName = null;
+        if (kind == KIND_INHOUSE)
+            machineId = record.getInt();
+        else
+            companyName = decodeString(record);
+        Part existing = Inventory.lookupPart(id);
+        if (existing != null && (existing instanceof InHouse) == (kind == KIND_INHOUSE)) {
+            existing.setName(name);
+            existing.setPrice(price);
+            existing.setStock(stock);
+            existing.setMinMax(min, max);
+            if (kind == KIND_INHOUSE)
+                ((InHouse)existing).setMachineId(machineId);
+            else
+                ((Outsourced)existing).setCompanyName(companyName);
+            return;
+        }
+        Part part = (kind == KIND_INHOUSE) ? new InHouse(id, name, price, stock, min, max, machineId) :
+                new Outsourced(id, name, price, stock, min, max, companyName);
+        if (existing == null)
+            Inventory.addPart(part);
+        else
+            Inventory.updatePart(Inventory.getAllParts().indexOf(existing), part);
+    }
+
+    private static void applyProduct(ByteBuffer record) {
+        int id = record.getInt();
+        String name = decodeString(record);
+        double price = record.getDouble();
+        int stock = record.getInt();
+        int min = record.getInt();
+        int max = record.getInt();
+        Product existing = Inventory.lookupProduct(id);
+        if (existing == null) {
+            Inventory.addProduct(new Product(id, name, price, stock, min, max));
+            return;
+        }
+        existing.setName(name);
+        existing.setPrice(price);
+        existing.setStock(stock);
+        existing.setMinMax(min, max);
+    }
+
+    private static void applyAssociatedParts(ByteBuffer record) {
+        Product product = Inventory.lookupProduct(record.getInt());
+        int from = record.getInt();
+        int removedCount = record.getInt();
+        int addedCount = record.getInt();
+        ArrayList<Part> added = new ArrayList<>(addedCount);
+        for (int i = 0; i < addedCount; i++) {
+            Part part = Inventory.lookupPart(record.getInt());
+            if (part != null)
+                added.add(part);
+        }
+        if (product == null)
+            return;
+        ObservableList<Part> parts = product.getAllAssociatedParts();
+        from = Math.min(from, parts.size());
+        if (removedCount > 0)
+            parts.remove(from, Math.min(from + removedCount, parts.size()));
+        if (!added.isEmpty())
+            parts.addAll(from, added);
+    }
+}
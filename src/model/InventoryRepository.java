@@ -0,0 +1,110 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Persistent storage that mirrors the parts, products and associated parts of the inventory.
+ *
+ * The inventory is kept in memory; a repository is read when it is set as the inventory's repository, to load its contents, and from then on
+ * receives every change that is made to the inventory. Parts and products are identified by their unique identifiers. Implementations may
+ * hold back writes and send them to storage later, on another thread, so writes should not wait for storage; reads always reflect every write
+ * that was made before them. Reads may return cached objects, so the same object is normally returned for the same identifier.
+ *
+ * @author Leonard T. Erwine
+ */
+public interface InventoryRepository extends Closeable {
+    /**
+     * Gets the number of parts in storage.
+     *
+     * @return The number of parts.
+     * @throws IOException The storage could not be read.
+     */
+    int getPartCount() throws IOException;
+
+    /**
+     * Gets the number of products in storage.
+     *
+     * @return The number of products.
+     * @throws IOException The storage could not be read.
+     */
+    int getProductCount() throws IOException;
+
+    /**
+     * Gets a range of parts, in order of their unique identifiers.
+     *
+     * @param offset The number of parts to skip.
+     * @param count The maximum number of parts to return.
+     * @return The parts in the range.
+     * @throws IOException The storage could not be read.
+     */
+    List<Part> getParts(int offset, int count) throws IOException;
+
+    /**
+     * Gets a range of products, in order of their unique identifiers, with their associated parts.
+     *
+     * @param offset The number of products to skip.
+     * @param count The maximum number of products to return.
+     * @return The products in the range.
+     * @throws IOException The storage could not be read.
+     */
+    List<Product> getProducts(int offset, int count) throws IOException;
+
+    /**
+     * Gets the part with a specified unique identifier.
+     *
+     * @param id The unique identifier of the part.
+     * @return The part, or null if there is no part with that identifier.
+     * @throws IOException The storage could not be read.
+     */
+    Part findPart(int id) throws IOException;
+
+    /**
+     * Gets the product with a specified unique identifier, with its associated parts.
+     *
+     * @param id The unique identifier of the product.
+     * @return The product, or null if there is no product with that identifier.
+     * @throws IOException The storage could not be read.
+     */
+    Product findProduct(int id) throws IOException;
+
+    /**
+     * Adds a part to storage, or replaces the stored values of the part with the same unique identifier.
+     *
+     * @param part The part to store.
+     * @throws IOException The storage could not be written.
+     */
+    void putPart(Part part) throws IOException;
+
+    /**
+     * Removes a part from storage.
+     *
+     * @param id The unique identifier of the part.
+     * @throws IOException The storage could not be written.
+     */
+    void deletePart(int id) throws IOException;
+
+    /**
+     * Adds a product and its associated parts to storage, or replaces the stored values of the product with the same unique identifier.
+     *
+     * @param product The product to store.
+     * @throws IOException The storage could not be written.
+     */
+    void putProduct(Product product) throws IOException;
+
+    /**
+     * Removes a product and its part associations from storage.
+     *
+     * @param id The unique identifier of the product.
+     * @throws IOException The storage could not be written.
+     */
+    void deleteProduct(int id) throws IOException;
+
+    /**
+     * Waits until any writes that have been held back have been sent to storage.
+     *
+     * @throws IOException The storage could not be written.
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,441 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import javafx.collections.ListChangeListener;
+
+/**
+ * A point-in-time record of which items are in the inventory.
+ *
+ * Snapshots are obtained from Inventory.getSnapshot(). A snapshot records which parts and products were in the inventory, which parts
+ * were associated with each product, and the unique identifier of each item, at the time it was taken; none of that ever changes, and it can
+ * be read from any thread without locking. A new snapshot is published after each change to the inventory, and shares everything that the
+ * change did not touch with the one before it, so taking a snapshot never copies the inventory.
+ *
+ * The field values of the items themselves (name, price, stock, etc.) are not copied, and can change after the snapshot is taken. Parts
+ * whose values are kept in a part store must not have their getters called on other threads, since the store can move their values while
+ * they are read; use readPartValues and readProductValues, which copy the values of a block of items while holding the inventory read lock.
+ *
+ * @author Leonard T. Erwine
+ */
+public final class InventorySnapshot {
+    private final long version;
+    private final ChunkedList<Part> parts;
+    private final ChunkedList<Product> products;
+    private final HashTrie<Part> partsById;
+    private final HashTrie<Product> productsById;
+    private final HashTrie<ChunkedList<Part>> associatedParts;
+    // The products that each part is associated with, in the order they were associated with it.
+    private final HashTrie<ChunkedList<Product>> associatedProducts;
+
+    /**
+     * The number of items that readPartValues and readProductValues should be asked for at once, which keeps the inventory read lock from
+     * being held for long.
+     */
+    static final int VALUE_BLOCK_SIZE = 1024;
+
+    /**
+     * The field values of a block of parts or products, which were copied while holding the inventory read lock.
+     *
+     * Each array has one element for each item in the block.
+     */
+    static final class Values {
+        final int[] ids;
+        final String[] names;
+        final double[] prices;
+        final int[] stock;
+        final int[] min;
+        final int[] max;
+        // Parts only: the machine id of each in-house part and the company name of each outsourced part.
+        final int[] machineIds;
+        final String[] companyNames;
+        // Products only: the unique identifiers of the associated parts of each product, as recorded by the snapshot.
+        final int[][] associatedPartIds;
+
+        private Values(int count, boolean isParts) {
+            ids = new int[count];
+            names = new String[count];
+            prices = new double[count];
+            stock = new int[count];
+            min = new int[count];
+            max = new int[count];
+            machineIds = (isParts) ? new int[count] : null;
+            companyNames = (isParts) ? new String[count] : null;
+            associatedPartIds = (isParts) ? null : new int[count][];
+        }
+    }
+
+    private InventorySnapshot(long version, Builder builder) {
+        this.version = version;
+        parts = builder.parts;
+        products = builder.products;
+        partsById = builder.partsById;
+        productsById = builder.productsById;
+        associatedParts = builder.associatedParts;
+        associatedProducts = builder.associatedProducts;
+    }
+
+    /**
+     * Gets the modification count of the inventory at the time the snapshot was taken.
+     *
+     * @return A number which is greater for snapshots that were taken after later changes.
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * Gets all parts that were in the inventory when the snapshot was taken.
+     *
+     * @return An unmodifiable list of parts.
+     */
+    public List<Part> getParts() { return parts; }
+
+    /**
+     * Gets all products that were in the inventory when the snapshot was taken.
+     *
+     * @return An unmodifiable list of products.
+     */
+    public List<Product> getProducts() { return products; }
+
+    /**
+     * Gets the parts that were associated with a product when the snapshot was taken.
+     *
+     * @param product The product to look up.
+     * @return An unmodifiable list of parts or an empty list if the product was not in the inventory.
+     */
+    public List<Part> getAssociatedParts(Product product) {
+        List<Part> result = associatedParts.get(product);
+        return (result == null) ? Collections.emptyList() : result;
+    }
+
+    /**
+     * Gets the products that a part was associated with when the snapshot was taken.
+     *
+     * @param part The part to look up.
+     * @return An unmodifiable list of products, in the order they were associated with the part, or an empty list if the part was not
+     * associated with any product.
+     */
+    public List<Product> getAssociatedProducts(Part part) {
+        List<Product> result = associatedProducts.get(part);
+        return (result == null) ? Collections.emptyList() : result;
+    }
+
+    /**
+     * Gets the Part whose unique identifier matches a specified value.
+     *
+     * @param partId The unique identifier to search for.
+     * @return The Part where getId() matched the specified value when the snapshot was taken or null if no matches were found.
+     */
+    public Part lookupPart(int partId) { return partsById.get(partId); }
+
+    /**
+     * Gets the Product whose unique identifier matches a specified value.
+     *
+     * @param productId The unique identifier to search for.
+     * @return The Product where getId() matched the specified value when the snapshot was taken or null if no matches were found.
+     */
+    public Product lookupProduct(int productId) { return productsById.get(productId); }
+
+    /**
+     * Copies the current field values of a range of the parts in the snapshot while holding the inventory read lock.
+     *
+     * @param from The index of the first part in getParts().
+     * @param to The index after the last part in getParts().
+     * @return The field values of the parts.
+     */
+    Values readPartValues(int from, int to) {
+        Values values = new Values(to - from, true);
+        Lock lock = Inventory.getReadLock();
+        lock.lock();
+        try {
+            for (int i = from; i < to; i++) {
+                Part part = parts.get(i);
+                int j = i - from;
+                values.ids[j] = part.getId();
+                values.names[j] = part.getName();
+                values.prices[j] = part.getPrice();
+                values.stock[j] = part.getStock();
+                values.min[j] = part.getMin();
+                values.max[j] = part.getMax();
+                if (part instanceof InHouse)
+                    values.machineIds[j] = ((InHouse)part).getMachineId();
+                else if (part instanceof Outsourced)
+                    values.companyNames[j] = ((Outsourced)part).getCompanyName();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return values;
+    }
+
+    /**
+     * Copies the current field values of a range of the products in the snapshot while holding the inventory read lock.
+     *
+     * @param from The index of the first product in getProducts().
+     * @param to The index after the last product in getProducts().
+     * @return The field values of the products.
+     */
+    Values readProductValues(int from, int to) {
+        Values values = new Values(to - from, false);
+        Lock lock = Inventory.getReadLock();
+        lock.lock();
+        try {
+            for (int i = from; i < to; i++) {
+                Product product = products.get(i);
+                int j = i - from;
+                values.ids[j] = product.getId();
+                values.names[j] = product.getName();
+                values.prices[j] = product.getPrice();
+                values.stock[j] = product.getStock();
+                values.min[j] = product.getMin();
+                values.max[j] = product.getMax();
+                List<Part> associated = getAssociatedParts(product);
+                int[] partIds = new int[associated.size()];
+                for (int k = 0; k < partIds.length; k++)
+                    partIds[k] = associated.get(k).getId();
+                values.associatedPartIds[j] = partIds;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return values;
+    }
+
+    /**
+     * Gets the parts in the snapshot whose name contains the specified text.
+     *
+     * The search uses the inventory's name index while holding the inventory read lock, so only the parts whose names match are visited.
+     * Names are matched as they are when the search runs; parts which have been added since the snapshot was taken are left out.
+     *
+     * @param text The text to search for (substring, case-insensitive).
+     * @return The matching parts, in the order of the name index.
+     */
+    public List<Part> searchParts(String text) { return Inventory.searchParts(this, text); }
+
+    /**
+     * Gets the products in the snapshot whose name contains the specified text.
+     *
+     * The search uses the inventory's name index while holding the inventory read lock, so only the products whose names match are visited.
+     * Names are matched as they are when the search runs; products which have been added since the snapshot was taken are left out.
+     *
+     * @param text The text to search for (substring, case-insensitive).
+     * @return The matching products, in the order of the name index.
+     */
+    public List<Product> searchProducts(String text) { return Inventory.searchProducts(this, text); }
+
+    /**
+     * Keeps the contents of the latest snapshot in step with the changes that are made to the inventory, so a new snapshot can be taken
+     * after each change without copying the inventory.
+     *
+     * Each method records one change, and must be called while holding the inventory write lock. Methods which are passed a list change
+     * iterate it, so the caller must reset it before reading it again.
+     */
+    static final class Builder {
+        private ChunkedList<Part> parts = ChunkedList.empty();
+        private ChunkedList<Product> products = ChunkedList.empty();
+        private HashTrie<Part> partsById = HashTrie.empty();
+        private HashTrie<Product> productsById = HashTrie.empty();
+        private HashTrie<ChunkedList<Part>> associatedParts = HashTrie.empty();
+        private HashTrie<ChunkedList<Product>> associatedProducts = HashTrie.empty();
+        // Associations made and removed by the change being recorded, which are applied together once it has been read.
+        private IdentityHashMap<Part, ArrayList<Product>> associated = new IdentityHashMap<>();
+        private IdentityHashMap<Part, Set<Product>> unassociated = new IdentityHashMap<>();
+
+        /**
+         * Takes a snapshot of the changes that have been recorded so far.
+         *
+         * @param version The modification count of the inventory.
+         * @return The snapshot.
+         */
+        InventorySnapshot build(long version) { return new InventorySnapshot(version, this); }
+
+        /**
+         * Records a change to the list of all parts.
+         *
+         * @param change The change to the list.
+         */
+        void partsChanged(ListChangeListener.Change<? extends Part> change) {
+            parts = parts.apply(change);
+            change.reset();
+            // Identifiers are indexed the same way as in the inventory, so the first part with an identifier keeps it.
+            while (change.next()) {
+                if (change.wasPermutated())
+                    continue;
+                for (Part part : change.getRemoved()) {
+                    if (partsById.get(part.getId()) == part)
+                        partsById = partsById.without(part.getId());
+                }
+                for (Part part : change.getAddedSubList()) {
+                    if (partsById.get(part.getId()) == null)
+                        partsById = partsById.with(part.getId(), part);
+                }
+            }
+        }
+
+        /**
+         * Records a change to the list of all products.
+         *
+         * @param change The change to the list.
+         */
+        void productsChanged(ListChangeListener.Change<? extends Product> change) {
+            products = products.apply(change);
+            change.reset();
+            while (change.next()) {
+                if (change.wasPermutated())
+                    continue;
+                for (Product product : change.getRemoved()) {
+                    ChunkedList<Part> productParts = associatedParts.get(product);
+                    if (productParts == null)
+                        continue;
+                    associatedParts = associatedParts.without(product);
+                    for (Part part : distinct(productParts))
+                        unassociate(part, product);
+                    if (productsById.get(product.getId()) == product)
+                        productsById = productsById.without(product.getId());
+                }
+                for (Product product : change.getAddedSubList()) {
+                    ChunkedList<Part> productParts = ChunkedList.of(product.getAllAssociatedParts());
+                    associatedParts = associatedParts.with(product, productParts);
+                    for (Part part : distinct(productParts))
+                        associate(part, product);
+                    if (productsById.get(product.getId()) == null)
+                        productsById = productsById.with(product.getId(), product);
+                }
+            }
+            applyAssociations();
+        }
+
+        /**
+         * Records a change to the unique identifier of a part in the inventory.
+         *
+         * @param part The part whose identifier changed.
+         * @param oldId The identifier it had before.
+         */
+        void partIdChanged(Part part, int oldId) {
+            if (partsById.get(oldId) == part)
+                partsById = partsById.without(oldId);
+            if (partsById.get(part.getId()) == null)
+                partsById = partsById.with(part.getId(), part);
+        }
+
+        /**
+         * Records a change to the unique identifier of a product in the inventory.
+         *
+         * @param product The product whose identifier changed.
+         * @param oldId The identifier it had before.
+         */
+        void productIdChanged(Product product, int oldId) {
+            if (productsById.get(oldId) == product)
+                productsById = productsById.without(oldId);
+            if (productsById.get(product.getId()) == null)
+                productsById = productsById.with(product.getId(), product);
+        }
+
+        /**
+         * Records a change to the parts associated with a product in the inventory.
+         *
+         * @param product The product whose associated parts changed.
+         * @param change The change to its list of associated parts.
+         */
+        void associatedPartsChanged(Product product, ListChangeListener.Change<? extends Part> change) {
+            ChunkedList<Part> oldParts = associatedParts.get(product);
+            if (oldParts == null)
+                return;
+            ChunkedList<Part> newParts = oldParts.apply(change);
+            associatedParts = associatedParts.with(product, newParts);
+            // Only the parts that were added or removed can have gained or lost the product, and only if the product didn't list them more
+            // than once.
+            change.reset();
+            Set<Part> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            while (change.next()) {
+                if (change.wasPermutated())
+                    continue;
+                changed.addAll(change.getRemoved());
+                changed.addAll(change.getAddedSubList());
+            }
+            if (changed.isEmpty())
+                return;
+            Set<Part> oldSet = distinct(oldParts);
+            Set<Part> newSet = distinct(newParts);
+            for (Part part : changed) {
+                boolean wasAssociated = oldSet.contains(part);
+                if (wasAssociated != newSet.contains(part)) {
+                    if (wasAssociated)
+                        unassociate(part, product);
+                    else
+                        associate(part, product);
+                }
+            }
+            applyAssociations();
+        }
+
+        private static Set<Part> distinct(List<Part> parts) {
+            Set<Part> result = Collections.newSetFromMap(new IdentityHashMap<>(parts.size()));
+            result.addAll(parts);
+            return result;
+        }
+
+        private void associate(Part part, Product product) {
+            Set<Product> removed = unassociated.get(part);
+            if (removed != null && removed.remove(product))
+                return;
+            ArrayList<Product> list = associated.get(part);
+            if (list == null)
+                associated.put(part, list = new ArrayList<>(2));
+            list.add(product);
+        }
+
+        private void unassociate(Part part, Product product) {
+            ArrayList<Product> added = associated.get(part);
+            if (added != null && added.remove(product))
+                return;
+            Set<Product> set = unassociated.get(part);
+            if (set == null)
+                unassociated.put(part, set = Collections.newSetFromMap(new IdentityHashMap<>(2)));
+            set.add(product);
+        }
+
+        /**
+         * Updates the lists of products that each part is associated with, from the associations that were recorded for the current change.
+         */
+        private void applyAssociations() {
+            for (Map.Entry<Part, Set<Product>> entry : unassociated.entrySet()) {
+                Set<Product> removed = entry.getValue();
+                if (removed.isEmpty())
+                    continue;
+                Part part = entry.getKey();
+                ChunkedList<Product> list = associatedProducts.get(part);
+                if (list == null)
+                    continue;
+                if (removed.size() == 1) {
+                    int index = list.indexOf(removed.iterator().next());
+                    if (index >= 0)
+                        list = list.replace(index, 1, Collections.emptyList());
+                } else {
+                    ArrayList<Product> kept = new ArrayList<>(list.size());
+                    for (Product product : list) {
+                        if (!removed.contains(product))
+                            kept.add(product);
+                    }
+                    list = ChunkedList.of(kept);
+                }
+                associatedProducts = (list.isEmpty()) ? associatedProducts.without(part) : associatedProducts.with(part, list);
+            }
+            for (Map.Entry<Part, ArrayList<Product>> entry : associated.entrySet()) {
+                if (entry.getValue().isEmpty())
+                    continue;
+                Part part = entry.getKey();
+                ChunkedList<Product> list = associatedProducts.get(part);
+                list = (list == null) ? ChunkedList.of(entry.getValue()) : list.replace(list.size(), 0, entry.getValue());
+                associatedProducts = associatedProducts.with(part, list);
+            }
+            // Clearing a map takes time in proportion to its capacity, which a bulk change can leave very large.
+            associated = new IdentityHashMap<>();
+            unassociated = new IdentityHashMap<>();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes complete copies of the inventory in a compact binary format.
+ *
+ * All integers are stored as zig-zag variable-length integers, so small values take a single byte; strings are stored as a length followed by
+ * their UTF-8 bytes; and the parts associated with each product are stored as a count followed by their unique identifiers. The file ends with
+ * a CRC-32 checksum of everything before it.
+ *
+ * Snapshot files are loaded by memory-mapping them and decoding the items directly from the mapped file. Because the contents are known to
+ * have come from a valid inventory, the items are added through a trusted bulk path, which skips the identifier, name and duplicate checks
+ * that are made when items are added individually.
+ *
+ * @author Leonard T. Erwine
+ */
+public final class InventorySnapshotFile {
+    private static final int MAGIC = 0x494D5353;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final byte KIND_INHOUSE = 0;
+    private static final byte KIND_OUTSOURCED = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    // The largest number of bytes a single encoded value (other than a string) can take.
+    private static final int MAX_VALUE_SIZE = 10;
+
+    private InventorySnapshotFile() { }
+
+    /**
+     * Saves the current contents of the inventory to a snapshot file.
+     *
+     * The file is written to a temporary file first and then moved into place, so an existing snapshot is never left partly overwritten.
+     *
+     * @param path The path of the snapshot file.
+     * @throws IOException The file could not be written.
+     */
+    public static void save(Path path) throws IOException { write(Inventory.getSnapshot(), 0L, path); }
+
+    /**
+     * Loads the contents of a snapshot file into the inventory.
+     *
+     * @param path The path of the snapshot file.
+     * @throws IOException The file could not be read, is not a snapshot file, or is corrupt.
+     */
+    public static void load(Path path) throws IOException { read(path); }
+
+    /**
+     * Writes a snapshot file.
+     *
+     * @param snapshot The inventory snapshot to write.
+     * @param generation The journal generation which continues from this snapshot.
+     * @param path The path of the snapshot file.
+     */
+    static void write(InventorySnapshot snapshot, long generation, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(channel);
+            writer.buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation);
+            List<Part> parts = snapshot.getParts();
+            List<Product> products = snapshot.getProducts();
+            writer.putVarInt(parts.size());
+            writer.putVarInt(products.size());
+            // Values are copied a block at a time, since stored parts can only be read while holding the inventory write lock.
+            for (int from = 0; from < parts.size(); from += InventorySnapshot.VALUE_BLOCK_SIZE) {
+                int to = Math.min(from + InventorySnapshot.VALUE_BLOCK_SIZE, parts.size());
+                InventorySnapshot.Values values = snapshot.readPartValues(from, to);
+                for (int i = 0; i < to - from; i++) {
+                    boolean isInHouse = parts.get(from + i) instanceof InHouse;
+                    writer.ensureRoom(1);
+                    writer.buffer.put((isInHouse) ? KIND_INHOUSE : KIND_OUTSOURCED);
+                    writer.putVarInt(values.ids[i]);
+                    writer.putString(values.names[i]);
+                    writer.putDouble(values.prices[i]);
+                    writer.putVarInt(values.stock[i]);
+                    writer.putVarInt(values.min[i]);
+                    writer.putVarInt(values.max[i]);
+                    if (isInHouse)
+                        writer.putVarInt(values.machineIds[i]);
+                    else
+                        writer.putString(values.companyNames[i]);
+                }
+            }
+            for (int from = 0; from < products.size(); from += InventorySnapshot.VALUE_BLOCK_SIZE) {
+                int to = Math.min(from + InventorySnapshot.VALUE_BLOCK_SIZE, products.size());
+                InventorySnapshot.Values values = snapshot.readProductValues(from, to);
+                for (int i = 0; i < to - from; i++) {
+                    writer.putVarInt(values.ids[i]);
+                    writer.putString(values.names[i]);
+                    writer.putDouble(values.prices[i]);
+                    writer.putVarInt(values.stock[i]);
+                    writer.putVarInt(values.min[i]);
+                    writer.putVarInt(values.max[i]);
+                    int[] partIds = values.associatedPartIds[i];
+                    writer.putVarInt(partIds.length);
+                    for (int partId : partIds)
+                        writer.putVarInt(partId);
+                }
+            }
+            writer.finish();
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot file into the inventory.
+     *
+     * @param path The path of the snapshot file.
+     * @return The journal generation which continues from the snapshot.
+     */
+    static long read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Snapshot file is too large to be loaded.");
+            if (size < HEADER_SIZE + 4)
+                throw new IOException("The file is not an inventory snapshot.");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("The file is not an inventory snapshot.");
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION)
+                throw new IOException("Unsupported inventory snapshot version " + version + ".");
+            long generation = buffer.getLong();
+
+            ByteBuffer body = buffer.duplicate();
+            body.position(0).limit((int)size - 4);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (buffer.getInt((int)size - 4) != (int)crc.getValue())
+                throw new IOException("The inventory snapshot is corrupt.");
+            buffer.limit((int)size - 4);
+
+            try {
+                Reader reader = new Reader(buffer);
+                int partCount = reader.getVarInt();
+                int productCount = reader.getVarInt();
+                ArrayList<Part> parts = new ArrayList<>(partCount);
+                IntHashMap<Part> partsById = new IntHashMap<>(partCount);
+                for (int i = 0; i < partCount; i++) {
+                    byte kind = buffer.get();
+                    int id = reader.getVarInt();
+                    String name = reader.getString();
+                    double price = buffer.getDouble();
+                    int stock = reader.getVarInt();
+                    int min = reader.getVarInt();
+                    int max = reader.getVarInt();
+                    Part part = (kind == KIND_INHOUSE) ? new InHouse(id, name, price, stock, min, max, reader.getVarInt()) :
+                            new Outsourced(id, name, price, stock, min, max, reader.getString());
+                    parts.add(part);
+                    partsById.putIfAbsent(id, part);
+                }
+                ArrayList<Product> products = new ArrayList<>(productCount);
+                ArrayList<Part> associated = new ArrayList<>();
+                for (int i = 0; i < productCount; i++) {
+                    int id = reader.getVarInt();
+                    String name = reader.getString();
+                    double price = buffer.getDouble();
+                    Product product = new Product(id, name, price, reader.getVarInt(), reader.getVarInt(), reader.getVarInt());
+                    int count = reader.getVarInt();
+                    associated.clear();
+                    for (int n = 0; n < count; n++) {
+                        Part part = partsById.get(reader.getVarInt());
+                        if (part != null)
+                            associated.add(part);
+                    }
+                    if (!associated.isEmpty())
+                        product.getAllAssociatedParts().setAll(associated);
+                    products.add(product);
+                }
+                Inventory.addTrusted(parts, products);
+            } catch (RuntimeException ex) {
+                throw new IOException("The inventory snapshot is corrupt.", ex);
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * Reads the journal generation from the header of a snapshot file, without loading it.
+     *
+     * @param path The path of the snapshot file.
+     * @return The journal generation which continues from the snapshot.
+     */
+    static long readGeneration(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION)
+                throw new IOException("The file is not a supported inventory snapshot.");
+            return header.getLong();
+        }
+    }
+
+    private static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        Writer(FileChannel channel) { this.channel = channel; }
+
+        void ensureRoom(int size) throws IOException {
+            if (buffer.remaining() < size)
+                flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        void putVarInt(int value) throws IOException {
+            ensureRoom(MAX_VALUE_SIZE);
+            // Zig-zag encoding keeps small negative values small.
+            int v = (value << 1) ^ (value >> 31);
+            while ((v & ~0x7F) != 0) {
+                buffer.put((byte)((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buffer.put((byte)v);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensureRoom(8);
+            buffer.putDouble(value);
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = (value == null) ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            putVarInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining())
+                    flush();
+                int count = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int)crc.getValue()).flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private byte[] bytes = new byte[64];
+
+        Reader(ByteBuffer buffer) { this.buffer = buffer; }
+
+        int getVarInt() {
+            int v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                v |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String getString() {
+            int length = getVarInt();
+            if (length > bytes.length)
+                bytes = new byte[Math.max(length, bytes.length << 1)];
+            buffer.get(bytes, 0, length);
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
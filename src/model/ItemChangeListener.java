@@ -0,0 +1,51 @@
+package model;
+
+/**
+ * Receives notifications when a property of a part or product changes.
+ *
+ * Each kind of value has its own callback, so values are passed without being boxed and no event object is created. The property names are
+ * the PROP_ constants in ModelHelper. All of the callbacks call changed(Object, String) by default, so a listener that doesn't need the values
+ * only has to override that method.
+ *
+ * @author Leonard T. Erwine
+ * @param <T> Type of item.
+ */
+public interface ItemChangeListener<T> {
+    /**
+     * Called when an integer property, such as the unique identifier or the stock level, changes.
+     *
+     * @param item The item that changed.
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
+     */
+    default void intChanged(T item, String propertyName, int oldValue, int newValue) { changed(item, propertyName); }
+
+    /**
+     * Called when a floating-point property, such as the price, changes.
+     *
+     * @param item The item that changed.
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
+     */
+    default void doubleChanged(T item, String propertyName, double oldValue, double newValue) { changed(item, propertyName); }
+
+    /**
+     * Called when an object property, such as the name, changes.
+     *
+     * @param item The item that changed.
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
+     */
+    default void objectChanged(T item, String propertyName, Object oldValue, Object newValue) { changed(item, propertyName); }
+
+    /**
+     * Called by the other callbacks, unless they are overridden.
+     *
+     * @param item The item that changed.
+     * @param propertyName The name of the property.
+     */
+    default void changed(T item, String propertyName) { }
+}
@@ -0,0 +1,102 @@
+package model;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Helpers for the listener arrays of parts and products.
+ *
+ * Each item keeps its listeners in an array which is only created when the first listener is added, and which is replaced rather than
+ * modified, so that it can be read without locking while the item fires a change.
+ *
+ * @author Leonard T. Erwine
+ */
+final class ItemChangeListeners {
+    private ItemChangeListeners() { }
+
+    /**
+     * Gets a copy of an array of listeners with a listener added to the end.
+     *
+     * @param listeners The current listeners, or null if there are none.
+     * @param listener The listener to add.
+     * @return The new array of listeners.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> ItemChangeListener<? super T>[] add(ItemChangeListener<? super T>[] listeners, ItemChangeListener<? super T> listener) {
+        if (listener == null)
+            throw new NullPointerException();
+        if (listeners == null)
+            return (ItemChangeListener<? super T>[])new ItemChangeListener<?>[] { listener };
+        ItemChangeListener<? super T>[] result = Arrays.copyOf(listeners, listeners.length + 1);
+        result[listeners.length] = listener;
+        return result;
+    }
+
+    /**
+     * Gets a copy of an array of listeners with the last occurrence of a listener removed.
+     *
+     * @param listeners The current listeners, or null if there are none.
+     * @param listener The listener to remove.
+     * @return The new array of listeners, the same array if the listener was not found, or null if no listeners are left.
+     */
+    static <T> ItemChangeListener<? super T>[] remove(ItemChangeListener<? super T>[] listeners, Object listener) {
+        if (listeners == null || listener == null)
+            return listeners;
+        for (int i = listeners.length - 1; i >= 0; i--) {
+            if (listeners[i].equals(listener)) {
+                if (listeners.length == 1)
+                    return null;
+                ItemChangeListener<? super T>[] result = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, result, i, listeners.length - i - 1);
+                return result;
+            }
+        }
+        return listeners;
+    }
+
+    /**
+     * Passes changes to a PropertyChangeListener, for code that uses the java.beans listener interface.
+     */
+    static final class PropertyChangeAdapter implements ItemChangeListener<Object> {
+        private final String propertyName;
+        private final PropertyChangeListener listener;
+
+        PropertyChangeAdapter(String propertyName, PropertyChangeListener listener) {
+            if (listener == null)
+                throw new NullPointerException();
+            this.propertyName = propertyName;
+            this.listener = listener;
+        }
+
+        @Override
+        public void intChanged(Object item, String propertyName, int oldValue, int newValue) { fire(item, propertyName, oldValue, newValue); }
+
+        @Override
+        public void doubleChanged(Object item, String propertyName, double oldValue, double newValue) {
+            fire(item, propertyName, oldValue, newValue);
+        }
+
+        @Override
+        public void objectChanged(Object item, String propertyName, Object oldValue, Object newValue) {
+            fire(item, propertyName, oldValue, newValue);
+        }
+
+        private void fire(Object item, String name, Object oldValue, Object newValue) {
+            if (propertyName == null || propertyName.equals(name))
+                listener.propertyChange(new PropertyChangeEvent(item, name, oldValue, newValue));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PropertyChangeAdapter))
+                return false;
+            PropertyChangeAdapter other = (PropertyChangeAdapter)obj;
+            return listener.equals(other.listener) && Objects.equals(propertyName, other.propertyName);
+        }
+
+        @Override
+        public int hashCode() { return listener.hashCode() * 31 + Objects.hashCode(propertyName); }
+    }
+}
@@ -0,0 +1,68 @@
+package model;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+/**
+ * The JavaFX properties of a part or product, which table cells can observe directly instead of calling getters through reflection.
+ *
+ * An item only creates these when one of its property accessors is first called, and keeps them current by listening to its own changes.
+ * Changes made on other threads are passed to the JavaFX Application Thread, since the properties are normally bound to controls.
+ *
+ * @author Leonard T. Erwine
+ */
+final class ItemProperties implements ItemChangeListener<Object> {
+    private final ReadOnlyIntegerWrapper id;
+    private final ReadOnlyStringWrapper name;
+    private final ReadOnlyIntegerWrapper stock;
+    private final ReadOnlyDoubleWrapper price;
+
+    ItemProperties(Object bean, int id, String name, int stock, double price) {
+        this.id = new ReadOnlyIntegerWrapper(bean, ModelHelper.PROP_ID, id);
+        this.name = new ReadOnlyStringWrapper(bean, ModelHelper.PROP_NAME, name);
+        this.stock = new ReadOnlyIntegerWrapper(bean, ModelHelper.PROP_STOCK, stock);
+        this.price = new ReadOnlyDoubleWrapper(bean, ModelHelper.PROP_PRICE, price);
+    }
+
+    ReadOnlyIntegerWrapper getId() { return id; }
+
+    ReadOnlyStringWrapper getName() { return name; }
+
+    ReadOnlyIntegerWrapper getStock() { return stock; }
+
+    ReadOnlyDoubleWrapper getPrice() { return price; }
+
+    @Override
+    public void intChanged(Object item, String propertyName, int oldValue, int newValue) {
+        switch (propertyName) {
+            case ModelHelper.PROP_ID:
+                runOnFxThread(() -> id.set(newValue));
+                break;
+            case ModelHelper.PROP_STOCK:
+                runOnFxThread(() -> stock.set(newValue));
+                break;
+        }
+    }
+
+    @Override
+    public void doubleChanged(Object item, String propertyName, double oldValue, double newValue) {
+        if (ModelHelper.PROP_PRICE.equals(propertyName))
+            runOnFxThread(() -> price.set(newValue));
+    }
+
+    @Override
+    public void objectChanged(Object item, String propertyName, Object oldValue, Object newValue) {
+        if (ModelHelper.PROP_NAME.equals(propertyName))
+            runOnFxThread(() -> name.set((String)newValue));
+    }
+
+    private static void runOnFxThread(Runnable action) {
+        // Updates that are passed to the application thread are queued in order, so the last value set is the one that remains.
+        if (Platform.isFxApplicationThread())
+            action.run();
+        else
+            Platform.runLater(action);
+    }
+}
@@ -0,0 +1,713 @@
+package model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.InvalidParameterException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores parts, products and their associations in a SQL database through JDBC, such as an embedded, file-based Apache Derby database.
+ *
+ * This is a persistence mirror of the inventory: the inventory is loaded from it once, and every later change is written back to it. The
+ * values of each written item are captured on the thread that made the change and handed to a dedicated writer thread, which sends everything
+ * that has accumulated since its last write as JDBC batches in one transaction. Writes of the same item are combined, so an item that is
+ * changed many times while a write is in progress is only written once, and threads that make changes never wait for the database unless they
+ * call flush(). If a write fails, the writer waits before trying again, doubling the wait after each failure; once too many writes in a row
+ * have failed, the repository stops writing and flush() and close() report the failure. Reads are made through a bounded cache of recently
+ * used items, and always see the writes that were made before them.
+ *
+ * The tables are created if they don't exist. The JDBC driver for the database must be on the class path.
+ *
+ * @author Leonard T. Erwine
+ */
+public final class JdbcInventoryRepository implements InventoryRepository {
+    /**
+     * The JDBC URL of the default database, which is an embedded Derby database named "ims" in the current directory.
+     */
+    public static final String DEFAULT_URL = "jdbc:derby:ims;create=true";
+
+    /**
+     * The default maximum number of parts, and of products, which are kept in the read cache.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private static final Logger LOG = Logger.getLogger(JdbcInventoryRepository.class.getName());
+    private static final int BATCH_SIZE = 1000;
+    // How long the writer waits before trying again after its first failed write, and how many writes in a row can fail before it gives up.
+    private static final long RETRY_DELAY_MILLIS = 1000L;
+    private static final int MAX_FAILED_WRITES = 6;
+    private static final short KIND_INHOUSE = 0;
+    private static final short KIND_OUTSOURCED = 1;
+    // Marks a pending write as a deletion.
+    private static final Object DELETED = new Object();
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE part (id INT NOT NULL PRIMARY KEY, kind SMALLINT NOT NULL, name VARCHAR(32672) NOT NULL, price DOUBLE NOT NULL, " +
+                "stock INT NOT NULL, min_stock INT NOT NULL, max_stock INT NOT NULL, machine_id INT, company_name VARCHAR(32672))",
+        "CREATE TABLE product (id INT NOT NULL PRIMARY KEY, name VARCHAR(32672) NOT NULL, price DOUBLE NOT NULL, stock INT NOT NULL, " +
+                "min_stock INT NOT NULL, max_stock INT NOT NULL)",
+        "CREATE TABLE product_part (product_id INT NOT NULL, seq INT NOT NULL, part_id INT NOT NULL, PRIMARY KEY (product_id, seq))",
+        "CREATE INDEX product_part_part ON product_part (part_id)"
+    };
+    private static final String PART_COLUMNS = "id, kind, name, price, stock, min_stock, max_stock, machine_id, company_name";
+    private static final String PRODUCT_COLUMNS = "id, name, price, stock, min_stock, max_stock";
+
+    private final Connection connection;
+    private final PreparedStatement insertPart;
+    private final PreparedStatement deletePart;
+    private final PreparedStatement insertProduct;
+    private final PreparedStatement deleteProduct;
+    private final PreparedStatement insertProductPart;
+    private final PreparedStatement deleteProductParts;
+    private final PreparedStatement selectPart;
+    private final PreparedStatement selectProduct;
+    private final PreparedStatement selectPartsFrom;
+    private final PreparedStatement selectPartsAfter;
+    private final PreparedStatement selectProductsFrom;
+    private final PreparedStatement selectProductsAfter;
+    private final PreparedStatement selectAssociatedParts;
+    // Writes which have not been taken by the writer yet, by unique identifier. The values are rows to store, or DELETED. Reads flush while
+    // holding the monitor, so the writer is idle and nothing new can be queued while they use the connection.
+    private LinkedHashMap<Integer, Object> pendingParts = new LinkedHashMap<>();
+    private LinkedHashMap<Integer, Object> pendingProducts = new LinkedHashMap<>();
+    private long queuedWriteCount = 0L;
+    private long writtenWriteCount = 0L;
+    private long failedWriteCount = 0L;
+    private int consecutiveFailures = 0;
+    private long retryTime = 0L;
+    private boolean isFlushRequested = false;
+    private SQLException lastError = null;
+    // Set when the writer has given up, after which writes are discarded.
+    private SQLException failure = null;
+    private boolean closed = false;
+    private final Thread writerThread;
+    private final Cache<Part> partCache;
+    private final Cache<Product> productCache;
+    // Where the last range read ended, so that reading the next range can seek by identifier instead of skipping rows.
+    private int nextPartOffset = -1;
+    private int lastPartId;
+    private int nextProductOffset = -1;
+    private int lastProductId;
+
+    private JdbcInventoryRepository(Connection connection, int cacheSize) throws SQLException {
+        this.connection = connection;
+        partCache = new Cache<>(cacheSize);
+        productCache = new Cache<>(cacheSize);
+        insertPart = connection.prepareStatement("INSERT INTO part (" + PART_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        deletePart = connection.prepareStatement("DELETE FROM part WHERE id = ?");
+        insertProduct = connection.prepareStatement("INSERT INTO product (" + PRODUCT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)");
+        deleteProduct = connection.prepareStatement("DELETE FROM product WHERE id = ?");
+        insertProductPart = connection.prepareStatement("INSERT INTO product_part (product_id, seq, part_id) VALUES (?, ?, ?)");
+        deleteProductParts = connection.prepareStatement("DELETE FROM product_part WHERE product_id = ?");
+        selectPart = connection.prepareStatement("SELECT " + PART_COLUMNS + " FROM part WHERE id = ?");
+        selectProduct = connection.prepareStatement("SELECT " + PRODUCT_COLUMNS + " FROM product WHERE id = ?");
+        selectPartsFrom = connection.prepareStatement("SELECT " + PART_COLUMNS + " FROM part ORDER BY id OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+        selectPartsAfter = connection.prepareStatement("SELECT " + PART_COLUMNS + " FROM part WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY");
+        selectProductsFrom = connection.prepareStatement("SELECT " + PRODUCT_COLUMNS +
+                " FROM product ORDER BY id OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+        selectProductsAfter = connection.prepareStatement("SELECT " + PRODUCT_COLUMNS +
+                " FROM product WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY");
+        selectAssociatedParts = connection.prepareStatement("SELECT pp.product_id, p.id, p.kind, p.name, p.price, p.stock, p.min_stock, " +
+                "p.max_stock, p.machine_id, p.company_name FROM product_part pp JOIN part p ON p.id = pp.part_id " +
+                "WHERE pp.product_id BETWEEN ? AND ? ORDER BY pp.product_id, pp.seq");
+        writerThread = new Thread(this::runWriter, "Inventory repository writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Opens the default database.
+     *
+     * @return The opened repository.
+     * @throws IOException The database could not be opened, or its tables could not be created.
+     */
+    public static JdbcInventoryRepository open() throws IOException { return open(DEFAULT_URL, DEFAULT_CACHE_SIZE); }
+
+    /**
+     * Opens a database.
+     *
+     * @param url The JDBC URL of the database.
+     * @return The opened repository.
+     * @throws IOException The database could not be opened, or its tables could not be created.
+     */
+    public static JdbcInventoryRepository open(String url) throws IOException { return open(url, DEFAULT_CACHE_SIZE); }
+
+    /**
+     * Opens a database.
+     *
+     * @param url The JDBC URL of the database.
+     * @param cacheSize The maximum number of parts, and of products, to keep in the read cache.
+     * @return The opened repository.
+     * @throws IOException The database could not be opened, or its tables could not be created.
+     */
+    public static JdbcInventoryRepository open(String url, int cacheSize) throws IOException {
+        if (url == null)
+            throw new NullPointerException();
+        if (cacheSize < 1)
+            throw new IllegalArgumentException("Cache size must be at least one.");
+        Connection connection = null;
+        try {
+            connection = DriverManager.getConnection(url);
+            connection.setAutoCommit(false);
+            if (!hasTable(connection.getMetaData(), "part")) {
+                try (Statement statement = connection.createStatement()) {
+                    for (String sql : SCHEMA)
+                        statement.executeUpdate(sql);
+                }
+                connection.commit();
+            }
+            return new JdbcInventoryRepository(connection, cacheSize);
+        } catch (SQLException ex) {
+            if (connection != null) {
+                try { connection.close(); } catch (SQLException e) { ex.addSuppressed(e); }
+            }
+            throw new IOException("Unable to open the inventory database.", ex);
+        }
+    }
+
+    private static boolean hasTable(DatabaseMetaData metaData, String name) throws SQLException {
+        // Databases differ in whether unquoted names are stored in upper or lower case.
+        for (String tableName : new String[] { name.toUpperCase(), name }) {
+            try (ResultSet tables = metaData.getTables(null, null, tableName, null)) {
+                if (tables.next())
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized int getPartCount() throws IOException { return count("SELECT COUNT(*) FROM part"); }
+
+    @Override
+    public synchronized int getProductCount() throws IOException { return count("SELECT COUNT(*) FROM product"); }
+
+    private int count(String sql) throws IOException {
+        flush();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException ex) {
+            throw new IOException("Unable to read the inventory database.", ex);
+        }
+    }
+
+    @Override
+    public synchronized List<Part> getParts(int offset, int count) throws IOException {
+        if (offset < 0 || count < 0)
+            throw new IndexOutOfBoundsException();
+        flush();
+        ArrayList<Part> result = new ArrayList<>(Math.min(count, BATCH_SIZE));
+        if (count == 0)
+            return result;
+        try {
+            PreparedStatement select;
+            if (offset == nextPartOffset) {
+                select = selectPartsAfter;
+                select.setInt(1, lastPartId);
+            } else {
+                select = selectPartsFrom;
+                select.setInt(1, offset);
+            }
+            select.setInt(2, count);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next())
+                    result.add(readPart(rs, 1));
+            }
+        } catch (SQLException ex) {
+            throw new IOException("Unable to read the inventory database.", ex);
+        }
+        if (!result.isEmpty()) {
+            nextPartOffset = offset + result.size();
+            lastPartId = result.get(result.size() - 1).getId();
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<Product> getProducts(int offset, int count) throws IOException {
+        if (offset < 0 || count < 0)
+            throw new IndexOutOfBoundsException();
+        flush();
+        ArrayList<Product> result = new ArrayList<>(Math.min(count, BATCH_SIZE));
+        if (count == 0)
+            return result;
+        try {
+            PreparedStatement select;
+            if (offset == nextProductOffset) {
+                select = selectProductsAfter;
+                select.setInt(1, lastProductId);
+            } else {
+                select = selectProductsFrom;
+                select.setInt(1, offset);
+            }
+            select.setInt(2, count);
+            ArrayList<Product> loaded = new ArrayList<>();
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next())
+                    result.add(readProduct(rs, loaded));
+            }
+            if (!loaded.isEmpty())
+                readAssociatedParts(loaded);
+        } catch (SQLException ex) {
+            throw new IOException("Unable to read the inventory database.", ex);
+        }
+        if (!result.isEmpty()) {
+            nextProductOffset = offset + result.size();
+            lastProductId = result.get(result.size() - 1).getId();
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Part findPart(int id) throws IOException {
+        flush();
+        Part part = partCache.get(id);
+        if (part != null)
+            return part;
+        try {
+            selectPart.setInt(1, id);
+            try (ResultSet rs = selectPart.executeQuery()) {
+                return (rs.next()) ? readPart(rs, 1) : null;
+            }
+        } catch (SQLException ex) {
+            throw new IOException("Unable to read the inventory database.", ex);
+        }
+    }
+
+    @Override
+    public synchronized Product findProduct(int id) throws IOException {
+        flush();
+        Product product = productCache.get(id);
+        if (product != null)
+            return product;
+        try {
+            selectProduct.setInt(1, id);
+            ArrayList<Product> loaded = new ArrayList<>(1);
+            try (ResultSet rs = selectProduct.executeQuery()) {
+                if (!rs.next())
+                    return null;
+                product = readProduct(rs, loaded);
+            }
+            readAssociatedParts(loaded);
+            return product;
+        } catch (SQLException ex) {
+            throw new IOException("Unable to read the inventory database.", ex);
+        }
+    }
+
+    // Reads a part from the current row, starting at the specified column, and caches it. A part that is already cached is returned instead.
+    private Part readPart(ResultSet rs, int column) throws SQLException, IOException {
+        int id = rs.getInt(column);
+        Part part = partCache.get(id);
+        if (part != null)
+            return part;
+        try {
+            if (rs.getShort(column + 1) == KIND_INHOUSE)
+                part = new InHouse(id, rs.getString(column + 2), rs.getDouble(column + 3), rs.getInt(column + 4), rs.getInt(column + 5),
+                        rs.getInt(column + 6), rs.getInt(column + 7));
+            else
+                part = new Outsourced(id, rs.getString(column + 2), rs.getDouble(column + 3), rs.getInt(column + 4), rs.getInt(column + 5),
+                        rs.getInt(column + 6), rs.getString(column + 8));
+        } catch (NullPointerException | InvalidParameterException ex) {
+            throw new IOException("Part " + id + " in the inventory database is not valid.", ex);
+        }
+        partCache.put(id, part);
+        return part;
+    }
+
+    // Reads a product from the current row and caches it. A product that is already cached is returned instead; otherwise the new product is
+    // also added to the loaded list, so its associated parts can be read.
+    private Product readProduct(ResultSet rs, List<Product> loaded) throws SQLException, IOException {
+        int id = rs.getInt(1);
+        Product product = productCache.get(id);
+        if (product != null)
+            return product;
+        try {
+            product = new Product(id, rs.getString(2), rs.getDouble(3), rs.getInt(4), rs.getInt(5), rs.getInt(6));
+        } catch (NullPointerException | InvalidParameterException ex) {
+            throw new IOException("Product " + id + " in the inventory database is not valid.", ex);
+        }
+        productCache.put(id, product);
+        loaded.add(product);
+        return product;
+    }
+
+    // Reads the associated parts of newly loaded products, which must be in order of their unique identifiers.
+    private void readAssociatedParts(List<Product> products) throws SQLException, IOException {
+        selectAssociatedParts.setInt(1, products.get(0).getId());
+        selectAssociatedParts.setInt(2, products.get(products.size() - 1).getId());
+        int index = 0;
+        Product product = null;
+        ArrayList<Part> parts = new ArrayList<>();
+        try (ResultSet rs = selectAssociatedParts.executeQuery()) {
+            while (rs.next()) {
+                int productId = rs.getInt(1);
+                if (product == null || product.getId() != productId) {
+                    if (product != null)
+                        product.getAllAssociatedParts().setAll(parts);
+                    parts.clear();
+                    while (index < products.size() && products.get(index).getId() < productId)
+                        index++;
+                    product = (index < products.size() && products.get(index).getId() == productId) ? products.get(index) : null;
+                    if (product == null)
+                        continue;
+                }
+                parts.add(readPart(rs, 2));
+            }
+        }
+        if (product != null)
+            product.getAllAssociatedParts().setAll(parts);
+    }
+
+    @Override
+    public synchronized void putPart(Part part) throws IOException {
+        int id = part.getId();
+        if (!partCache.containsKey(id) && !(pendingParts.get(id) instanceof PartRow))
+            partRowMoved(id);
+        queuePart(id, new PartRow(part));
+        partCache.put(id, part);
+    }
+
+    @Override
+    public synchronized void deletePart(int id) throws IOException {
+        partRowMoved(id);
+        queuePart(id, DELETED);
+        partCache.remove(id);
+    }
+
+    @Override
+    public synchronized void putProduct(Product product) throws IOException {
+        int id = product.getId();
+        if (!productCache.containsKey(id) && !(pendingProducts.get(id) instanceof ProductRow))
+            productRowMoved(id);
+        queueProduct(id, new ProductRow(product));
+        productCache.put(id, product);
+    }
+
+    @Override
+    public synchronized void deleteProduct(int id) throws IOException {
+        productRowMoved(id);
+        queueProduct(id, DELETED);
+        productCache.remove(id);
+    }
+
+    // Adding or removing a row moves the ones after it, so the next range read can't continue from where the last one ended if the row came
+    // before that point. Items which are cached or pending already have a row, or had one inserted when they were first put, so storing them
+    // again only replaces a row in place and doesn't get here.
+    private void partRowMoved(int id) {
+        if (id <= lastPartId)
+            nextPartOffset = -1;
+    }
+
+    private void productRowMoved(int id) {
+        if (id <= lastProductId)
+            nextProductOffset = -1;
+    }
+
+    private void queuePart(int id, Object row) {
+        if (failure != null || closed)
+            return;
+        pendingParts.remove(id);
+        pendingParts.put(id, row);
+        queued();
+    }
+
+    private void queueProduct(int id, Object row) {
+        if (failure != null || closed)
+            return;
+        pendingProducts.remove(id);
+        pendingProducts.put(id, row);
+        queued();
+    }
+
+    private void queued() {
+        queuedWriteCount++;
+        // The writer only waits for an empty queue to be filled, or for the retry delay to pass.
+        if (pendingParts.size() + pendingProducts.size() == 1 && retryTime == 0L)
+            notifyAll();
+    }
+
+    /**
+     * Waits until every write that was made before this was called has been sent to storage, trying again at once if the writer is waiting
+     * to retry a write that failed.
+     *
+     * @throws IOException The writes could not be sent.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        long target = queuedWriteCount;
+        long failedWrites = failedWriteCount;
+        if (writtenWriteCount < target) {
+            isFlushRequested = true;
+            notifyAll();
+        }
+        while (writtenWriteCount < target && failure == null && failedWriteCount == failedWrites) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        if (failure != null)
+            throw new IOException("Unable to write to the inventory database.", failure);
+        if (writtenWriteCount < target)
+            throw new IOException("Unable to write to the inventory database.", lastError);
+    }
+
+    private void runWriter() {
+        while (true) {
+            LinkedHashMap<Integer, Object> parts;
+            LinkedHashMap<Integer, Object> products;
+            long batchEnd;
+            synchronized (this) {
+                while (failure == null) {
+                    boolean isEmpty = pendingParts.isEmpty() && pendingProducts.isEmpty();
+                    if (isEmpty && closed)
+                        return;
+                    long delay = (closed || isFlushRequested || retryTime == 0L) ? 0L : retryTime - System.currentTimeMillis();
+                    if (!isEmpty && delay <= 0L)
+                        break;
+                    try {
+                        wait(Math.max(delay, 0L));
+                    } catch (InterruptedException ex) {
+                        // Only close() stops the writer.
+                    }
+                }
+                if (failure != null)
+                    return;
+                parts = pendingParts;
+                products = pendingProducts;
+                pendingParts = new LinkedHashMap<>();
+                pendingProducts = new LinkedHashMap<>();
+                batchEnd = queuedWriteCount;
+                isFlushRequested = false;
+            }
+            SQLException error = null;
+            try {
+                write(parts, products);
+            } catch (SQLException ex) {
+                error = ex;
+            }
+            synchronized (this) {
+                if (error == null) {
+                    writtenWriteCount = batchEnd;
+                    consecutiveFailures = 0;
+                    retryTime = 0L;
+                    lastError = null;
+                } else {
+                    lastError = error;
+                    failedWriteCount++;
+                    isFlushRequested = false;
+                    // Writes that were queued while this one was being made are newer, so they replace the ones that failed.
+                    parts.putAll(pendingParts);
+                    products.putAll(pendingProducts);
+                    pendingParts = parts;
+                    pendingProducts = products;
+                    if (++consecutiveFailures >= MAX_FAILED_WRITES || closed) {
+                        LOG.log(Level.SEVERE, "The inventory database could not be written; no more changes will be written to it.", error);
+                        failure = lastError;
+                        pendingParts.clear();
+                        pendingProducts.clear();
+                    } else {
+                        long delay = RETRY_DELAY_MILLIS << (consecutiveFailures - 1);
+                        LOG.log(Level.WARNING, "Unable to write to the inventory database; trying again in " + delay + " ms.", error);
+                        retryTime = System.currentTimeMillis() + delay;
+                    }
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Sends a set of writes in one transaction, which is rolled back if any of them fail.
+    private void write(Map<Integer, Object> parts, Map<Integer, Object> products) throws SQLException {
+        try {
+            // Each write replaces the whole row, so every pending item is deleted first and the ones that are being stored are re-inserted.
+            for (Map.Entry<Integer, Object> entry : parts.entrySet()) {
+                int id = entry.getKey();
+                deletePart.setInt(1, id);
+                deletePart.addBatch();
+                if (entry.getValue() != DELETED)
+                    addPartBatch(id, (PartRow)entry.getValue());
+            }
+            for (Map.Entry<Integer, Object> entry : products.entrySet()) {
+                int id = entry.getKey();
+                deleteProduct.setInt(1, id);
+                deleteProduct.addBatch();
+                deleteProductParts.setInt(1, id);
+                deleteProductParts.addBatch();
+                if (entry.getValue() != DELETED)
+                    addProductBatch(id, (ProductRow)entry.getValue());
+            }
+            deletePart.executeBatch();
+            deleteProductParts.executeBatch();
+            deleteProduct.executeBatch();
+            insertPart.executeBatch();
+            insertProduct.executeBatch();
+            insertProductPart.executeBatch();
+            connection.commit();
+        } catch (SQLException ex) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                ex.addSuppressed(e);
+            }
+            clearBatches();
+            throw ex;
+        }
+    }
+
+    private void addPartBatch(int id, PartRow row) throws SQLException {
+        insertPart.setInt(1, id);
+        insertPart.setString(3, row.name);
+        insertPart.setDouble(4, row.price);
+        insertPart.setInt(5, row.stock);
+        insertPart.setInt(6, row.min);
+        insertPart.setInt(7, row.max);
+        insertPart.setShort(2, row.kind);
+        if (row.kind == KIND_INHOUSE) {
+            insertPart.setInt(8, row.machineId);
+            insertPart.setNull(9, Types.VARCHAR);
+        } else {
+            insertPart.setNull(8, Types.INTEGER);
+            insertPart.setString(9, row.companyName);
+        }
+        insertPart.addBatch();
+    }
+
+    private void addProductBatch(int id, ProductRow row) throws SQLException {
+        insertProduct.setInt(1, id);
+        insertProduct.setString(2, row.name);
+        insertProduct.setDouble(3, row.price);
+        insertProduct.setInt(4, row.stock);
+        insertProduct.setInt(5, row.min);
+        insertProduct.setInt(6, row.max);
+        insertProduct.addBatch();
+        for (int seq = 0; seq < row.partIds.length; seq++) {
+            insertProductPart.setInt(1, id);
+            insertProductPart.setInt(2, seq);
+            insertProductPart.setInt(3, row.partIds[seq]);
+            insertProductPart.addBatch();
+        }
+    }
+
+    private void clearBatches() {
+        for (PreparedStatement statement : new PreparedStatement[] { deletePart, deleteProductParts, deleteProduct, insertPart, insertProduct,
+                insertProductPart }) {
+            try {
+                statement.clearBatch();
+            } catch (SQLException ex) { }
+        }
+    }
+
+    /**
+     * Stops accepting writes, waits for the writer to send the ones that are outstanding, then closes the database connection.
+     *
+     * @throws IOException The writes could not be sent, or the connection could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            try {
+                // Reads leave a transaction open, which some databases won't close.
+                connection.commit();
+                connection.close();
+            } catch (SQLException ex) {
+                throw new IOException("Unable to close the inventory database.", ex);
+            }
+        }
+        synchronized (this) {
+            if (failure != null)
+                throw new IOException("Unable to write to the inventory database.", failure);
+        }
+    }
+
+    // The values of an item as they were when it was put, so the writer never reads an item that another thread may be changing.
+    private static final class PartRow {
+        private final short kind;
+        private final String name;
+        private final double price;
+        private final int stock;
+        private final int min;
+        private final int max;
+        private final int machineId;
+        private final String companyName;
+
+        PartRow(Part part) {
+            name = part.getName();
+            price = part.getPrice();
+            stock = part.getStock();
+            min = part.getMin();
+            max = part.getMax();
+            if (part instanceof InHouse) {
+                kind = KIND_INHOUSE;
+                machineId = ((InHouse)part).getMachineId();
+                companyName = null;
+            } else {
+                kind = KIND_OUTSOURCED;
+                machineId = 0;
+                companyName = ((Outsourced)part).getCompanyName();
+            }
+        }
+    }
+
+    private static final class ProductRow {
+        private final String name;
+        private final double price;
+        private final int stock;
+        private final int min;
+        private final int max;
+        private final int[] partIds;
+
+        ProductRow(Product product) {
+            name = product.getName();
+            price = product.getPrice();
+            stock = product.getStock();
+            min = product.getMin();
+            max = product.getMax();
+            List<Part> parts = product.getAllAssociatedParts();
+            partIds = new int[parts.size()];
+            for (int i = 0; i < partIds.length; i++)
+                partIds[i] = parts.get(i).getId();
+        }
+    }
+
+    private static class Cache<T> extends LinkedHashMap<Integer, T> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Cache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) { return size() > capacity; }
+    }
+}
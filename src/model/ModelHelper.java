@@ -74,6 +74,13 @@ public class ModelHelper {
         final String text;
         if (name == null || (text = name.trim().toLowerCase()).length() == 0)
             return new FilteredList(FXCollections.observableArrayList());
+        // The inventory list has a substring index, so there's no need to scan it.
+        if (source == (ObservableList<?>)Inventory.getAllParts()) {
+            // The source is the inventory list, so T can only be Part.
+            @SuppressWarnings("unchecked")
+            List<T> matches = (List<T>)Inventory.searchParts(text);
+            return new FilteredList<>(FXCollections.observableArrayList(matches));
+        }
         return source.filtered(item -> item.getName().toLowerCase().contains(text));
     }
     
@@ -88,6 +95,9 @@ public class ModelHelper {
         final String text;
         if (name == null || (text = name.trim().toLowerCase()).length() == 0)
             return new FilteredList(FXCollections.observableArrayList());
+        // The inventory list has a substring index, so there's no need to scan it.
+        if (source == Inventory.getAllProducts())
+            return new FilteredList<>(FXCollections.observableArrayList(Inventory.searchProducts(text)));
         return source.filtered(item -> item.getName().toLowerCase().contains(text));
     }
     
@@ -140,36 +150,48 @@ public class ModelHelper {
     }
     
     /**
-     *
-     * @param partId
-     * @return
+     * Gets the products that a part is associated with.
+     * 
+     * @param partId The unique identifier of the part.
+     * @return The products that the part is associated with, which are not updated when the inventory changes.
      */
     public static FilteredList<Product> getAssociatedProducts(int partId) {
-        return Inventory.getAllProducts().filtered((Product p) -> lookupPart(p, partId) != null);
+        return new FilteredList<>(FXCollections.observableArrayList(Inventory.getAssociatedProducts(partId)));
     }
     
     /**
-     *
-     * @param partId
-     * @param newPrice
-     * @return
+     * Gets the products where the sum of the price of its parts would exceed the price of the product if a part had a different price.
+     * 
+     * @param partId The unique identifier of the part.
+     * @param newPrice The prospective new price of the part.
+     * @return The products whose price would be less than the sum of the price of its parts, which are not updated when the inventory changes.
      */
     public static FilteredList<Product> getPotentialPriceSumViolations(int partId, double newPrice) {
-        return Inventory.getAllProducts().filtered((Product p) -> {
-            return lookupPart(p, partId) != null && getPriceSum(partId, newPrice, p.getAllAssociatedParts()) > p.getPrice();
-        });
+        ObservableList<Product> result = FXCollections.observableArrayList();
+        Part part = Inventory.lookupPart(partId);
+        if (part == null)
+            return new FilteredList<>(result);
+        double difference = newPrice - part.getPrice();
+        for (Product p : Inventory.getAssociatedProducts(part)) {
+            if (p.getPartPriceSum() + difference > p.getPrice())
+                result.add(p);
+        }
+        return new FilteredList<>(result);
     }
     
     /**
-     *
-     * @param partId
-     * @return
+     * Gets the products where a part is the only associated part.
+     * 
+     * @param partId The unique identifier of the part.
+     * @return The products which would have no parts if the part was removed, which are not updated when the inventory changes.
      */
     public static FilteredList<Product> getWhereLastAssociatedProduct(int partId) {
-        return Inventory.getAllProducts().filtered((Product p) -> {
-            ObservableList<Part> parts = p.getAllAssociatedParts();
-            return parts.size() == 1 && parts.get(0).getId() == partId;
-        });
+        ObservableList<Product> result = FXCollections.observableArrayList();
+        for (Product p : Inventory.getAssociatedProducts(partId)) {
+            if (p.getAllAssociatedParts().size() == 1)
+                result.add(p);
+        }
+        return new FilteredList<>(result);
     }
     
     /**
@@ -298,16 +320,10 @@ public class ModelHelper {
             throw new NullPointerException();
         if (newId < 0)
             throw new InvalidKeyException();
-        if (part.getId() == newId)
-            return;
-        ObservableList<Part> allParts = Inventory.getAllParts();
-        int index = allParts.indexOf(part);
-        if (index < 0)
+        if (part.getId() == newId || !Inventory.isPartAdded(part))
             return;
-        for (int i = 0; i < allParts.size(); i++) {
-            if (i != index && allParts.get(i).getId() == newId)
-                throw new KeyAlreadyExistsException();
-        }
+        if (Inventory.lookupPart(newId) != null)
+            throw new KeyAlreadyExistsException();
     }
     
     /**
@@ -321,16 +337,36 @@ public class ModelHelper {
             throw new NullPointerException();
         if (newId < 0)
             throw new InvalidKeyException();
-        if (product.getId() == newId)
+        if (product.getId() == newId || !Inventory.isProductAdded(product))
             return;
-        ObservableList<Product> allProducts = Inventory.getAllProducts();
-        int index = allProducts.indexOf(product);
-        if (index < 0)
-            return;
-        for (int i = 0; i < allProducts.size(); i++) {
-            if (i != index && allProducts.get(i).getId() == newId)
-                throw new KeyAlreadyExistsException();
-        }
+        if (Inventory.lookupProduct(newId) != null)
+            throw new KeyAlreadyExistsException();
+    }
+
+    /**
+     * Asserts that a candidate name does not conflict with another Part in the allParts list when unique part names are required.
+     * @param part The target Part that is presumably about to be renamed.
+     * @param newName The new name value.
+     * @throws KeyAlreadyExistsException Unique part names are required and another Part already uses that name.
+     */
+    public static void assertValidNameChange(Part part, String newName) throws KeyAlreadyExistsException {
+        if (part == null)
+            throw new NullPointerException();
+        if (Inventory.isUniquePartNamesRequired() && Inventory.isPartAdded(part) && Inventory.isPartNameInUse(newName, part))
+            throw new KeyAlreadyExistsException("Another part already has the same name.");
+    }
+    
+    /**
+     * Asserts that a candidate name does not conflict with another Product in the allProducts list when unique product names are required.
+     * @param product The target Product that is presumably about to be renamed.
+     * @param newName The new name value.
+     * @throws KeyAlreadyExistsException Unique product names are required and another Product already uses that name.
+     */
+    public static void assertValidNameChange(Product product, String newName) throws KeyAlreadyExistsException {
+        if (product == null)
+            throw new NullPointerException();
+        if (Inventory.isUniqueProductNamesRequired() && Inventory.isProductAdded(product) && Inventory.isProductNameInUse(newName, product))
+            throw new KeyAlreadyExistsException("Another product already has the same name.");
     }
 
     /**
@@ -348,7 +384,7 @@ public class ModelHelper {
      * @param part Part to test.
      * @return True if part exists in inventory list; otherwise, false.
      */
-    public static boolean isPartAdded(Part part) { return part != null && Inventory.getAllParts().contains(part); }
+    public static boolean isPartAdded(Part part) { return Inventory.isPartAdded(part); }
     
     /**
      * Determines whether a product has been added to the inventory list.
@@ -356,7 +392,7 @@ public class ModelHelper {
      * @param product Product to test.
      * @return True if product exists in inventory list; otherwise, false.
      */
-    public static boolean isProductAdded(Product product) { return product != null && Inventory.getAllProducts().contains(product); }
+    public static boolean isProductAdded(Product product) { return Inventory.isProductAdded(product); }
     
     /**
      * Displays a notificaton dialog box.
@@ -0,0 +1,184 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Index of inventory items by their normalized (trimmed and case-folded) names.
+ *
+ * Most names are unique, so an entry holds the item itself; a list is only allocated when more than one item has the same normalized name.
+ * The normalized names are also kept in sorted order, so items can be found by name prefix without scanning.
+ *
+ * @author Leonard T. Erwine
+ * @param <T> Type of item being indexed.
+ */
+class NameIndex<T> {
+    private final HashMap<String, Object> entries = new HashMap<>();
+    private final TreeSet<String> sortedKeys = new TreeSet<>();
+    private int duplicateKeyCount = 0;
+
+    /**
+     * Converts a name to the key value used for case-insensitive lookups.
+     *
+     * @param name The name to normalize.
+     * @return The trimmed, lower-case name or null if name is null.
+     */
+    static String toKey(String name) { return (name == null) ? null : name.trim().toLowerCase(Locale.ROOT); }
+
+    /**
+     * Gets the first item that was added with a matching name.
+     *
+     * @param name The name to look up (case-insensitive).
+     * @return The first item with a matching name or null if there are no matches.
+     */
+    @SuppressWarnings("unchecked")
+    T first(String name) {
+        Object entry = entries.get(toKey(name));
+        if (entry instanceof Bucket)
+            return ((Bucket<T>)entry).get(0);
+        return (T)entry;
+    }
+
+    /**
+     * Gets the items whose names start with a prefix, in order of their normalized names.
+     *
+     * Only the entries that are returned are visited, so the cost depends on the limit rather than on the number of items in the index.
+     *
+     * @param prefix The name prefix to look up (case-insensitive).
+     * @param limit The maximum number of items to return.
+     * @return Up to limit items whose names start with the prefix.
+     */
+    @SuppressWarnings("unchecked")
+    List<T> startingWith(String prefix, int limit) {
+        ArrayList<T> result = new ArrayList<>();
+        String key = toKey(prefix);
+        if (key == null || key.length() == 0 || limit < 1)
+            return result;
+        for (String k : sortedKeys.tailSet(key)) {
+            if (!k.startsWith(key))
+                break;
+            Object entry = entries.get(k);
+            if (entry instanceof Bucket) {
+                for (T item : (Bucket<T>)entry) {
+                    result.add(item);
+                    if (result.size() == limit)
+                        return result;
+                }
+            } else {
+                result.add((T)entry);
+                if (result.size() == limit)
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determines whether any item other than the specified one has a matching name.
+     *
+     * @param name The name to look up (case-insensitive).
+     * @param item The item to ignore or null to test for any match.
+     * @return True if another item has a matching name; otherwise, false.
+     */
+    boolean containsOther(String name, T item) {
+        Object entry = entries.get(toKey(name));
+        if (entry == null)
+            return false;
+        if (entry instanceof Bucket)
+            return true;
+        return entry != item;
+    }
+
+    /**
+     * Determines whether any normalized name is shared by more than one item.
+     *
+     * @return True if any items have duplicate names; otherwise, false.
+     */
+    boolean hasDuplicates() { return duplicateKeyCount > 0; }
+
+    /**
+     * Adds an item to the index.
+     *
+     * @param name The name of the item.
+     * @param item The item to add.
+     */
+    @SuppressWarnings("unchecked")
+    void add(String name, T item) {
+        String key = toKey(name);
+        Object entry = entries.putIfAbsent(key, item);
+        if (entry == null) {
+            sortedKeys.add(key);
+            return;
+        }
+        if (entry instanceof Bucket) {
+            ((Bucket<T>)entry).add(item);
+            return;
+        }
+        Bucket<T> bucket = new Bucket<>();
+        bucket.add((T)entry);
+        bucket.add(item);
+        entries.put(key, bucket);
+        duplicateKeyCount++;
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param name The name the item was indexed under.
+     * @param item The item to remove.
+     */
+    @SuppressWarnings("unchecked")
+    void remove(String name, T item) {
+        String key = toKey(name);
+        Object entry = entries.get(key);
+        if (entry == null)
+            return;
+        if (!(entry instanceof Bucket)) {
+            if (entry == item) {
+                entries.remove(key);
+                sortedKeys.remove(key);
+            }
+            return;
+        }
+        Bucket<T> bucket = (Bucket<T>)entry;
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == item) {
+                bucket.remove(i);
+                break;
+            }
+        }
+        if (bucket.size() == 1) {
+            entries.put(key, bucket.get(0));
+            duplicateKeyCount--;
+        }
+    }
+
+    /**
+     * Moves an item from one name to another.
+     *
+     * @param oldName The name the item was indexed under.
+     * @param newName The new name of the item.
+     * @param item The item that was renamed.
+     */
+    void rename(String oldName, String newName, T item) {
+        remove(oldName, item);
+        add(newName, item);
+    }
+
+    /**
+     * Removes all items from the index.
+     */
+    void clear() {
+        entries.clear();
+        sortedKeys.clear();
+        duplicateKeyCount = 0;
+    }
+
+    @SuppressWarnings("serial")
+    private static class Bucket<T> extends ArrayList<T> {
+        Bucket() { super(2); }
+    }
+}
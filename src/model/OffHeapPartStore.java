@@ -0,0 +1,233 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the field values of parts outside of the Java heap, so very large catalogues don't need a very large heap, and the garbage
+ * collector doesn't have to trace the values of every part.
+ *
+ * Numeric values are kept in fixed-width records in direct byte buffers. Names and company names are kept as length-prefixed UTF-8 in a
+ * separate direct string area, which the records refer to by offset. Replaced strings are left in place until at least half of the string
+ * area is unused, at which point the live strings are copied into a new string area.
+ *
+ * @author Leonard T. Erwine
+ */
+class OffHeapPartStore extends PartStore {
+    // Record layout
+    private static final int OFFSET_ID = 0;
+    private static final int OFFSET_STOCK = 4;
+    private static final int OFFSET_MIN = 8;
+    private static final int OFFSET_MAX = 12;
+    private static final int OFFSET_MACHINEID = 16;
+    private static final int OFFSET_PRICE = 24;
+    private static final int OFFSET_NAME = 32;
+    private static final int OFFSET_COMPANYNAME = 40;
+    private static final int RECORD_SIZE = 48;
+
+    // Records are allocated in fixed-size chunks, so growing the store never copies existing records.
+    private static final int RECORDS_PER_CHUNK_SHIFT = 16;
+    private static final int RECORDS_PER_CHUNK = 1 << RECORDS_PER_CHUNK_SHIFT;
+    private static final int RECORD_INDEX_MASK = RECORDS_PER_CHUNK - 1;
+
+    // String references are (chunk number << STRING_CHUNK_SHIFT) | offset, plus one so that zero means "no string".
+    private static final int STRING_CHUNK_SHIFT = 24;
+    private static final int STRING_CHUNK_SIZE = 1 << STRING_CHUNK_SHIFT;
+    private static final long STRING_OFFSET_MASK = STRING_CHUNK_SIZE - 1;
+    private static final long NO_STRING = 0L;
+    private static final int[] STRING_FIELDS = { OFFSET_NAME, OFFSET_COMPANYNAME };
+
+    private ByteBuffer[] recordChunks = new ByteBuffer[0];
+    private ArrayList<ByteBuffer> stringChunks = new ArrayList<>();
+    private long stringBytesUsed = 0L;
+    private long stringBytesFree = 0L;
+
+    /**
+     * Creates a new off-heap part store.
+     *
+     * @param initialCapacity The number of slots to allocate initially.
+     */
+    OffHeapPartStore(int initialCapacity) {
+        super(initialCapacity);
+        growTo(Math.max(initialCapacity, 16));
+    }
+
+    private ByteBuffer chunkOf(int slot) { return recordChunks[slot >>> RECORDS_PER_CHUNK_SHIFT]; }
+
+    private static int offsetOf(int slot) { return (slot & RECORD_INDEX_MASK) * RECORD_SIZE; }
+
+    @Override
+    protected void growTo(int capacity) {
+        int chunkCount = (capacity + RECORDS_PER_CHUNK - 1) >>> RECORDS_PER_CHUNK_SHIFT;
+        if (chunkCount <= recordChunks.length)
+            return;
+        int n = recordChunks.length;
+        recordChunks = Arrays.copyOf(recordChunks, chunkCount);
+        while (n < chunkCount)
+            recordChunks[n++] = ByteBuffer.allocateDirect(RECORDS_PER_CHUNK * RECORD_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    protected void copySlot(int fromSlot, int toSlot) {
+        ByteBuffer from = chunkOf(fromSlot);
+        ByteBuffer to = chunkOf(toSlot);
+        int fromOffset = offsetOf(fromSlot);
+        int toOffset = offsetOf(toSlot);
+        for (int i = 0; i < RECORD_SIZE; i += 8)
+            to.putLong(toOffset + i, from.getLong(fromOffset + i));
+    }
+
+    @Override
+    protected void releaseSlot(int slot) {
+        ByteBuffer chunk = chunkOf(slot);
+        int offset = offsetOf(slot);
+        freeString(chunk.getLong(offset + OFFSET_NAME));
+        freeString(chunk.getLong(offset + OFFSET_COMPANYNAME));
+    }
+
+    @Override
+    protected void clearSlot(int slot) {
+        ByteBuffer chunk = chunkOf(slot);
+        int offset = offsetOf(slot);
+        for (int i = 0; i < RECORD_SIZE; i += 8)
+            chunk.putLong(offset + i, 0L);
+        compactStringsIfSparse();
+    }
+
+    @Override
+    double getTotalValue() {
+        double total = 0.0;
+        int size = size();
+        for (int slot = 0; slot < size; slot++) {
+            ByteBuffer chunk = chunkOf(slot);
+            int offset = offsetOf(slot);
+            total += chunk.getDouble(offset + OFFSET_PRICE) * chunk.getInt(offset + OFFSET_STOCK);
+        }
+        return total;
+    }
+
+    private static ByteBuffer stringChunkOf(List<ByteBuffer> chunks, long ref) { return chunks.get((int)((ref - 1) >>> STRING_CHUNK_SHIFT)); }
+
+    private static int stringOffsetOf(long ref) { return (int)((ref - 1) & STRING_OFFSET_MASK); }
+
+    private String readString(long ref) { return readString(stringChunks, ref); }
+
+    private static String readString(List<ByteBuffer> chunks, long ref) {
+        if (ref == NO_STRING)
+            return null;
+        ByteBuffer chunk = stringChunkOf(chunks, ref);
+        int offset = stringOffsetOf(ref);
+        int length = chunk.getInt(offset);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = chunk.duplicate();
+        view.position(offset + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long writeString(String value) {
+        if (value == null)
+            return NO_STRING;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int needed = bytes.length + 4;
+        if (needed > STRING_CHUNK_SIZE)
+            throw new IllegalArgumentException("String is too long to be stored.");
+        ByteBuffer chunk = (stringChunks.isEmpty()) ? null : stringChunks.get(stringChunks.size() - 1);
+        if (chunk == null || chunk.remaining() < needed) {
+            chunk = ByteBuffer.allocateDirect(STRING_CHUNK_SIZE).order(ByteOrder.nativeOrder());
+            stringChunks.add(chunk);
+        }
+        int offset = chunk.position();
+        chunk.putInt(bytes.length);
+        chunk.put(bytes);
+        stringBytesUsed += needed;
+        return ((long)(stringChunks.size() - 1) << STRING_CHUNK_SHIFT | offset) + 1;
+    }
+
+    private void freeString(long ref) {
+        if (ref != NO_STRING)
+            stringBytesFree += stringChunkOf(stringChunks, ref).getInt(stringOffsetOf(ref)) + 4;
+    }
+
+    private void replaceString(int slot, int field, String value) {
+        ByteBuffer chunk = chunkOf(slot);
+        int offset = offsetOf(slot) + field;
+        freeString(chunk.getLong(offset));
+        chunk.putLong(offset, writeString(value));
+        compactStringsIfSparse();
+    }
+
+    /**
+     * Copies all live strings into a new string area once at least half of the current one is no longer used.
+     */
+    private void compactStringsIfSparse() {
+        if (stringBytesFree < STRING_CHUNK_SIZE || stringBytesFree * 2 < stringBytesUsed)
+            return;
+        ArrayList<ByteBuffer> oldChunks = stringChunks;
+        stringChunks = new ArrayList<>();
+        stringBytesUsed = 0L;
+        stringBytesFree = 0L;
+        int size = size();
+        for (int slot = 0; slot < size; slot++) {
+            ByteBuffer chunk = chunkOf(slot);
+            int offset = offsetOf(slot);
+            for (int field : STRING_FIELDS) {
+                long ref = chunk.getLong(offset + field);
+                if (ref != NO_STRING)
+                    chunk.putLong(offset + field, writeString(readString(oldChunks, ref)));
+            }
+        }
+    }
+
+    @Override
+    int getId(int slot) { return chunkOf(slot).getInt(offsetOf(slot) + OFFSET_ID); }
+
+    @Override
+    void setId(int slot, int value) { chunkOf(slot).putInt(offsetOf(slot) + OFFSET_ID, value); }
+
+    @Override
+    String getName(int slot) { return readString(chunkOf(slot).getLong(offsetOf(slot) + OFFSET_NAME)); }
+
+    @Override
+    void setName(int slot, String value) { replaceString(slot, OFFSET_NAME, value); }
+
+    @Override
+    double getPrice(int slot) { return chunkOf(slot).getDouble(offsetOf(slot) + OFFSET_PRICE); }
+
+    @Override
+    void setPrice(int slot, double value) { chunkOf(slot).putDouble(offsetOf(slot) + OFFSET_PRICE, value); }
+
+    @Override
+    int getStock(int slot) { return chunkOf(slot).getInt(offsetOf(slot) + OFFSET_STOCK); }
+
+    @Override
+    void setStock(int slot, int value) { chunkOf(slot).putInt(offsetOf(slot) + OFFSET_STOCK, value); }
+
+    @Override
+    int getMin(int slot) { return chunkOf(slot).getInt(offsetOf(slot) + OFFSET_MIN); }
+
+    @Override
+    void setMin(int slot, int value) { chunkOf(slot).putInt(offsetOf(slot) + OFFSET_MIN, value); }
+
+    @Override
+    int getMax(int slot) { return chunkOf(slot).getInt(offsetOf(slot) + OFFSET_MAX); }
+
+    @Override
+    void setMax(int slot, int value) { chunkOf(slot).putInt(offsetOf(slot) + OFFSET_MAX, value); }
+
+    @Override
+    int getMachineId(int slot) { return chunkOf(slot).getInt(offsetOf(slot) + OFFSET_MACHINEID); }
+
+    @Override
+    void setMachineId(int slot, int value) { chunkOf(slot).putInt(offsetOf(slot) + OFFSET_MACHINEID, value); }
+
+    @Override
+    String getCompanyName(int slot) { return readString(chunkOf(slot).getLong(offsetOf(slot) + OFFSET_COMPANYNAME)); }
+
+    @Override
+    void setCompanyName(int slot, String value) { replaceString(slot, OFFSET_COMPANYNAME, value); }
+}
@@ -1,6 +1,7 @@
 package model;
 
 import java.security.InvalidParameterException;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Represents a part that is out-sourced.
@@ -37,7 +38,7 @@ public class Outsourced extends Part {
      * 
      * @return The name of the company that produced the part.
      */
-    public String getCompanyName() { return companyName; }
+    public String getCompanyName() { return (getStore() == null) ? companyName : getStore().getCompanyName(getStoreSlot()); }
 
     /**
      * Sets the name of the company that produced the part.
@@ -49,10 +50,30 @@ public class Outsourced extends Part {
             throw new NullPointerException("Company name cannot be null.");
         if ((companyName = companyName.trim()).length() == 0)
             throw new InvalidParameterException("Company name cannot be empty.");
-        String oldCompanyName = this.companyName;
+        String oldCompanyName = getCompanyName();
         if (companyName.equals(oldCompanyName))
             return;
-        this.companyName = companyName;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_COMPANYNAME, oldCompanyName, companyName);
+        if (getStore() == null)
+            this.companyName = companyName;
+        else {
+            // Stored values are only written while holding the inventory write lock.
+            Lock lock = Inventory.getWriteLock();
+            lock.lock();
+            try {
+                if (getStore() == null)
+                    this.companyName = companyName;
+                else
+                    getStore().setCompanyName(getStoreSlot(), companyName);
+            } finally {
+                lock.unlock();
+            }
+        }
+        fireObjectChanged(ModelHelper.PROP_COMPANYNAME, oldCompanyName, companyName);
     }
+
+    @Override
+    void readStoreFields(PartStore source, int slot) { companyName = source.getCompanyName(slot); }
+
+    @Override
+    void releaseStoreFields() { companyName = null; }
 }
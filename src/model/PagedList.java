@@ -0,0 +1,181 @@
+package model;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.collections.ObservableListBase;
+
+/**
+ * A read-only observable list which only reads the items that are actually used, a page at a time.
+ *
+ * A TableView only asks its items list for the rows that are on screen, so a paged list lets it show a very large number of items without
+ * copying them into a list first. The most recently used pages are kept in a small cache, and the source is only read again when a row on a
+ * page that isn't cached is needed. This list must only be used on the thread which changes its source, like any other observable list.
+ *
+ * @author Leonard T. Erwine
+ * @param <T> Type of item.
+ */
+public final class PagedList<T> extends ObservableListBase<T> {
+    /**
+     * The default number of items that are read from the source at once.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 256;
+
+    /**
+     * The default number of pages that are kept in the cache.
+     */
+    public static final int DEFAULT_CACHED_PAGES = 16;
+
+    /**
+     * Reads the items of a paged list.
+     *
+     * @param <T> Type of item.
+     */
+    public interface PageSource<T> {
+        /**
+         * Gets the number of items in the source.
+         *
+         * @return The number of items.
+         */
+        int getCount();
+
+        /**
+         * Gets a range of items from the source.
+         *
+         * @param offset The index of the first item.
+         * @param count The number of items to get.
+         * @return The items in the range, which can be fewer than requested if the source has changed since getCount() was called.
+         */
+        List<T> getPage(int offset, int count);
+    }
+
+    private final PageSource<T> source;
+    private final int pageSize;
+    private final LinkedHashMap<Integer, List<T>> pages;
+    private int size;
+
+    /**
+     * Creates a paged list with the default page and cache sizes.
+     *
+     * @param source The source of the items.
+     */
+    public PagedList(PageSource<T> source) { this(source, DEFAULT_PAGE_SIZE, DEFAULT_CACHED_PAGES); }
+
+    /**
+     * Creates a paged list.
+     *
+     * @param source The source of the items.
+     * @param pageSize The number of items that are read from the source at once.
+     * @param cachedPages The number of pages to keep in the cache.
+     * @throws NullPointerException source is null.
+     * @throws IllegalArgumentException pageSize or cachedPages is less than one.
+     */
+    public PagedList(PageSource<T> source, int pageSize, int cachedPages) throws NullPointerException, IllegalArgumentException {
+        if (source == null)
+            throw new NullPointerException();
+        if (pageSize < 1 || cachedPages < 1)
+            throw new IllegalArgumentException("Page size and number of cached pages must be greater than zero.");
+        this.source = source;
+        this.pageSize = pageSize;
+        // Access order, so the first entry is always the least recently used page.
+        pages = new LinkedHashMap<Integer, List<T>>(cachedPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) { return size() > cachedPages; }
+        };
+        size = source.getCount();
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        Integer pageNumber = index / pageSize;
+        List<T> page = pages.get(pageNumber);
+        if (page == null) {
+            int offset = pageNumber * pageSize;
+            page = source.getPage(offset, Math.min(pageSize, size - offset));
+            pages.put(pageNumber, page);
+        }
+        int i = index % pageSize;
+        // The source has fewer items than it did when it was counted; callers should refresh the list.
+        return (i < page.size()) ? page.get(i) : null;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    /**
+     * Changes the source and notifies listeners that the whole list has been replaced.
+     *
+     * Use this for a change to the source which can't be passed on an item at a time. The items are read from the source before the change
+     * is made, so listeners are told which items were removed; this reads every item, so it should only be used for changes which read the
+     * whole source anyway.
+     *
+     * @param sourceChange The action which changes the source.
+     */
+    public void refresh(Runnable sourceChange) {
+        List<T> removed = (size > 0) ? source.getPage(0, size) : Collections.<T>emptyList();
+        sourceChange.run();
+        pages.clear();
+        size = source.getCount();
+        beginChange();
+        if (!removed.isEmpty())
+            nextRemove(0, removed);
+        if (size > 0)
+            nextAdd(0, size);
+        endChange();
+    }
+
+    /**
+     * Notifies listeners that an item has been inserted into the source, without reading the rest of the source again.
+     *
+     * @param index The index of the new item.
+     */
+    public void itemAdded(int index) {
+        discardPages(index, Integer.MAX_VALUE);
+        size = source.getCount();
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+    }
+
+    /**
+     * Notifies listeners that an item has been removed from the source, without reading the rest of the source again.
+     *
+     * @param index The index that the item was removed from.
+     * @param item The item that was removed.
+     */
+    public void itemRemoved(int index, T item) {
+        discardPages(index, Integer.MAX_VALUE);
+        size = source.getCount();
+        beginChange();
+        nextRemove(index, item);
+        endChange();
+    }
+
+    /**
+     * Notifies listeners that an item in the source has been replaced by another, without reading the rest of the source again.
+     *
+     * @param index The index of the item that was replaced.
+     * @param item The item that was replaced.
+     */
+    public void itemReplaced(int index, T item) {
+        discardPages(index, index + 1);
+        beginChange();
+        nextReplace(index, index + 1, Collections.singletonList(item));
+        endChange();
+    }
+
+    private void discardPages(int from, int to) {
+        int first = from / pageSize;
+        int last = (to == Integer.MAX_VALUE) ? Integer.MAX_VALUE : (to - 1) / pageSize;
+        Iterator<Integer> iterator = pages.keySet().iterator();
+        while (iterator.hasNext()) {
+            int pageNumber = iterator.next();
+            if (pageNumber >= first && pageNumber <= last)
+                iterator.remove();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package model;
 
-import java.beans.PropertyChangeSupport;
+import java.beans.PropertyChangeListener;
 import java.security.InvalidKeyException;
 import java.security.InvalidParameterException;
-import javafx.collections.ObservableList;
+import java.util.concurrent.locks.Lock;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
 
 /**
  * Base class for In-House and Out-sourced parts.
@@ -17,7 +20,13 @@ public abstract class Part /*implements InventoryItemModel*/ {
     private int stock;
     private int min;
     private int max;
-    
+    // When the part is attached to a PartStore, the field values above are not used.
+    private PartStore store = null;
+    private int storeSlot = -1;
+    // Only allocated when the first listener is added.
+    private volatile ItemChangeListener<? super Part>[] changeListeners = null;
+    // Only created when one of the JavaFX property accessors is first called.
+    private ItemProperties properties = null;
     
     /**
      * Initializes a new object to represent a Part.
@@ -46,7 +55,7 @@ public abstract class Part /*implements InventoryItemModel*/ {
         this.stock = stock;
         if (min < 0)
             throw new InvalidParameterException("Minimum inventory level cannot be less than zero.");
-        this.min = 0;
+        this.min = min;
         if (max < 0)
             throw new InvalidParameterException("Maximum inventory level cannot be less than zero.");
         if (max <= min)
@@ -59,7 +68,7 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * 
      * @return The unique identifier value for the part.
      */
-    public int getId() { return id; }
+    public int getId() { return (store == null) ? id : store.getId(storeSlot); }
 
     /**
      * Sets the unique identifier for the current part.
@@ -68,13 +77,13 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * @throws java.security.InvalidKeyException id is less than zero or another part already uses that id.
      */
     public void setId(int id) throws InvalidKeyException {
-        int oldId = this.id;
+        int oldId = getId();
         if (oldId == id)
             return;
         // Ensure that the id is unique and valid.
         ModelHelper.assertValidIdChange(this, id);
-        this.id = id;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_ID, oldId, id);
+        writeId(id);
+        fireIntChanged(ModelHelper.PROP_ID, oldId, id);
     }
 
     /**
@@ -82,7 +91,7 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * 
      * @return The name of the part
      */
-    public String getName() { return name; }
+    public String getName() { return (store == null) ? name : store.getName(storeSlot); }
 
     /**
      * Sets the name for the current part.
@@ -90,17 +99,20 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * @param name The new name of the part.
      * @throws NullPointerException Name is null.
      * @throws java.security.InvalidParameterException Name is empty.
+     * @throws javax.management.openmbean.KeyAlreadyExistsException Unique part names are required and another part already uses that name.
      */
     public void setName(String name) throws NullPointerException, InvalidParameterException {
         if (name == null)
             throw new NullPointerException("Part name cannot be null.");
         if ((name = name.trim()).length() == 0)
             throw new InvalidParameterException("Part name cannot be empty.");
-        String oldName = this.name;
+        String oldName = getName();
         if (name.equals(oldName))
             return;
-        this.name = name;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_NAME, oldName, name);
+        // Ensure that the name is unique, if required.
+        ModelHelper.assertValidNameChange(this, name);
+        writeName(name);
+        fireObjectChanged(ModelHelper.PROP_NAME, oldName, name);
     }
 
     /**
@@ -108,7 +120,7 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * 
      * @return The price of the part.
      */
-    public double getPrice() { return price; }
+    public double getPrice() { return (store == null) ? price : store.getPrice(storeSlot); }
 
     /**
      * Sets the price / cost of the part.
@@ -117,14 +129,14 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * @throws java.security.InvalidParameterException Value is less than zero.
      */
     public void setPrice(double price) throws InvalidParameterException {
-        double oldPrice = this.price;
+        double oldPrice = getPrice();
         if (oldPrice == price)
             return;
         if (price < 0)
             throw new InvalidParameterException("Price cannot be less than zero.");
             
-        this.price = price;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_PRICE, oldPrice, price);
+        writePrice(price);
+        fireDoubleChanged(ModelHelper.PROP_PRICE, oldPrice, price);
     }
 
     /**
@@ -132,7 +144,7 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * 
      * @return The number of parts currently in stock.
      */
-    public int getStock() { return stock; }
+    public int getStock() { return (store == null) ? stock : store.getStock(storeSlot); }
 
     /**
      * Sets the number of parts currently in stock.
@@ -141,9 +153,58 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * @throws java.security.InvalidParameterException Value is less than zero.
      */
     public void setStock(int stock) {
-        int oldStock = this.stock;
-        this.stock = stock;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_STOCK, oldStock, stock);
+        int oldStock = 0;
+        boolean isWritten = false;
+        synchronized (this) {
+            // The store can't be attached or detached while the monitor is held.
+            if (store == null) {
+                oldStock = this.stock;
+                this.stock = stock;
+                isWritten = true;
+            }
+        }
+        if (!isWritten) {
+            // The write lock is taken before the monitor of the part, in the same order as Inventory.adjustPartStock.
+            Lock lock = Inventory.getWriteLock();
+            lock.lock();
+            try {
+                synchronized (this) {
+                    oldStock = getStock();
+                    writeStock(stock);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        fireIntChanged(ModelHelper.PROP_STOCK, oldStock, stock);
+    }
+    
+    // The caller must hold the inventory write lock if the part is attached to a store.
+    private void writeStock(int value) {
+        if (store == null)
+            stock = value;
+        else
+            store.setStock(storeSlot, value);
+    }
+    
+    /**
+     * Adds to the number of parts currently in stock as a single atomic operation, without notifying listeners.
+     * 
+     * If the part is attached to a store, the caller must hold the inventory write lock.
+     * 
+     * @param delta The number of parts to add to the stock. This can be negative to remove parts from stock.
+     * @return The number of parts that were in stock before the change.
+     * @throws InvalidParameterException The new stock level would be less than zero or greater than getMax().
+     */
+    final synchronized int adjustStock(int delta) throws InvalidParameterException {
+        int oldStock = getStock();
+        long newStock = (long)oldStock + delta;
+        if (newStock < 0)
+            throw new InvalidParameterException("Inventory (stock) cannot be less than zero.");
+        if (newStock > getMax())
+            throw new InvalidParameterException("Inventory (stock) cannot be greater than the maximum stock level.");
+        writeStock((int)newStock);
+        return oldStock;
     }
 
     /**
@@ -151,7 +212,7 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * 
      * @return The minimum number of parts that can be in stock.
      */
-    public int getMin() { return min; }
+    public int getMin() { return (store == null) ? min : store.getMin(storeSlot); }
 
     /**
      * Sets the minimum number of parts that can be in stock.
@@ -162,13 +223,13 @@ public abstract class Part /*implements InventoryItemModel*/ {
     public void setMin(int min) {
         if (min < 0)
             throw new InvalidParameterException("Minimum stock cannot be less than zero.");
-        int oldMin = this.min;
+        int oldMin = getMin();
         if (oldMin == min)
             return;
-        if (min >= this.max)
+        if (min >= getMax())
             throw new InvalidParameterException("Minimum stock level must be less than the maximum stock level.");
-        this.min = min;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MIN, oldMin, min);
+        writeMin(min);
+        fireIntChanged(ModelHelper.PROP_MIN, oldMin, min);
     }
 
     /**
@@ -176,7 +237,7 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * 
      * @return The maximum number of parts that can be in stock.
      */
-    public int getMax() { return max; }
+    public int getMax() { return (store == null) ? max : store.getMax(storeSlot); }
 
     /**
      * Set the maximum number of parts that can be in stock.
@@ -185,13 +246,13 @@ public abstract class Part /*implements InventoryItemModel*/ {
      * @throws java.security.InvalidParameterException Value is is not greater than getMin().
      */
     public void setMax(int max) {
-        int oldMax = this.max;
+        int oldMax = getMax();
         if (oldMax == max)
             return;
-        if (max <= this.min)
+        if (max <= getMin())
             throw new InvalidParameterException("Maximum stock level must be greater than the maximum stock level.");
-        this.max = max;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MAX, oldMax, max);
+        writeMax(max);
+        fireIntChanged(ModelHelper.PROP_MAX, oldMax, max);
     }
     
     /**
@@ -206,19 +267,19 @@ public abstract class Part /*implements InventoryItemModel*/ {
             throw new InvalidParameterException("Minimum stock cannot be less than zero.");
         if (min >= max)
             throw new InvalidParameterException("Minimum stock level must be less than the maximum stock level.");
-        int oldMin = this.min;
-        int oldMax = this.max;
+        int oldMin = getMin();
+        int oldMax = getMax();
         if (oldMin == min) {
             if (oldMax == max)
                 return;
         } else {
-            this.min = min;
-            propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MIN, oldMin, min);
+            writeMin(min);
+            fireIntChanged(ModelHelper.PROP_MIN, oldMin, min);
             if (oldMax == max)
                 return;
         }
-        this.max = max;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MAX, oldMax, max);
+        writeMax(max);
+        fireIntChanged(ModelHelper.PROP_MAX, oldMax, max);
     }
     
     /**
@@ -228,28 +289,325 @@ public abstract class Part /*implements InventoryItemModel*/ {
         if (ModelHelper.isPartAdded(this))
             return;
         int oldId = getId();
-        if (oldId < 0 || Inventory.lookupPart(oldId) != null) {
-            ObservableList<Part> allParts = Inventory.getAllParts();
-            int nextId = allParts.size();
-            if (Inventory.lookupPart(nextId) != null)
-            {
-                for (int i = 0; i < nextId; i++) {
-                    if (Inventory.lookupPart(i) != null) {
-                        id = i;
-                        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_ID, oldId, i);
-                        return;
-                    }
-                }
-                // this would probably never happen, but just in case...
-                do { nextId++; } while (Inventory.lookupPart(nextId) != null);
-            }
-            id = nextId;
-            propertyChangeSupport.firePropertyChange(ModelHelper.PROP_ID, oldId, nextId);
+        if (oldId < 0 || Inventory.lookupPart(oldId) != null)
+            assignId(Inventory.nextPartId());
+    }
+    
+    /**
+     * Sets the unique identifier for a part that is not yet in the allParts list, without validating it.
+     * 
+     * @param newId The new unique identifier, which the caller has already determined is not in use.
+     */
+    final void assignId(int newId) {
+        int oldId = getId();
+        writeId(newId);
+        fireIntChanged(ModelHelper.PROP_ID, oldId, newId);
+    }
+    
+    // A part store can move slots and re-allocate its strings, and other threads read stored values while holding the inventory lock, so
+    // stored values are only written while holding the write lock. Parts which hold their own values don't need it.
+    private void writeId(int value) {
+        if (store == null) {
+            id = value;
+            return;
+        }
+        Lock lock = Inventory.getWriteLock();
+        lock.lock();
+        try {
+            if (store == null)
+                id = value;
+            else
+                store.setId(storeSlot, value);
+        } finally {
+            lock.unlock();
         }
     }
     
+    private void writeName(String value) {
+        if (store == null) {
+            name = value;
+            return;
+        }
+        Lock lock = Inventory.getWriteLock();
+        lock.lock();
+        try {
+            if (store == null)
+                name = value;
+            else
+                store.setName(storeSlot, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void writePrice(double value) {
+        if (store == null) {
+            price = value;
+            return;
+        }
+        Lock lock = Inventory.getWriteLock();
+        lock.lock();
+        try {
+            if (store == null)
+                price = value;
+            else
+                store.setPrice(storeSlot, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void writeMin(int value) {
+        if (store == null) {
+            min = value;
+            return;
+        }
+        Lock lock = Inventory.getWriteLock();
+        lock.lock();
+        try {
+            if (store == null)
+                min = value;
+            else
+                store.setMin(storeSlot, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void writeMax(int value) {
+        if (store == null) {
+            max = value;
+            return;
+        }
+        Lock lock = Inventory.getWriteLock();
+        lock.lock();
+        try {
+            if (store == null)
+                max = value;
+            else
+                store.setMax(storeSlot, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the store that holds the field values of the current part.
+     * 
+     * @return The store that the part is attached to or null if the part uses its own fields.
+     */
+    final PartStore getStore() { return store; }
+    
+    /**
+     * Gets the slot in the attached store that holds the field values of the current part.
+     * 
+     * @return The slot number or -1 if the part is not attached to a store.
+     */
+    final int getStoreSlot() { return storeSlot; }
+    
     /**
-     * Allows for more efficient detection of property value changes.
+     * Called by the attached store when the field values of the current part have been moved to another slot.
+     * 
+     * @param slot The new slot number.
      */
-    protected final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
+    final void setStoreSlot(int slot) { storeSlot = slot; }
+    
+    /**
+     * Moves the field values of the current part into a store, so the getters and setters read and write the store.
+     * 
+     * @param target The store to attach to.
+     */
+    final synchronized void attachStore(PartStore target) {
+        if (store == target)
+            return;
+        if (store != null)
+            detachStore();
+        storeSlot = target.add(this);
+        store = target;
+        // The store has its own copy, so the part doesn't need to keep its strings reachable.
+        name = null;
+        releaseStoreFields();
+    }
+    
+    /**
+     * Copies the field values of the current part back from its store, and releases its slot.
+     */
+    final synchronized void detachStore() {
+        if (store == null)
+            return;
+        PartStore source = store;
+        int slot = storeSlot;
+        id = source.getId(slot);
+        name = source.getName(slot);
+        price = source.getPrice(slot);
+        stock = source.getStock(slot);
+        min = source.getMin(slot);
+        max = source.getMax(slot);
+        readStoreFields(source, slot);
+        store = null;
+        storeSlot = -1;
+        source.remove(slot);
+    }
+    
+    /**
+     * Copies the values of fields which are specific to a derived class back from a store when the part is detached from it.
+     * 
+     * @param source The store that the part is being detached from.
+     * @param slot The slot that holds the values of the current part.
+     */
+    void readStoreFields(PartStore source, int slot) { }
+    
+    /**
+     * Releases the values of fields which are specific to a derived class after they have been copied to a store.
+     */
+    void releaseStoreFields() { }
+    
+    /**
+     * Adds a listener which is notified when a property of the current part changes.
+     * 
+     * @param listener The listener to add.
+     * @throws NullPointerException The listener is null.
+     */
+    public final void addChangeListener(ItemChangeListener<? super Part> listener) throws NullPointerException {
+        synchronized (this) {
+            changeListeners = ItemChangeListeners.add(changeListeners, listener);
+        }
+    }
+    
+    /**
+     * Removes a listener that was added with addChangeListener.
+     * 
+     * @param listener The listener to remove.
+     */
+    public final void removeChangeListener(ItemChangeListener<? super Part> listener) {
+        synchronized (this) {
+            changeListeners = ItemChangeListeners.remove(changeListeners, listener);
+        }
+    }
+    
+    /**
+     * Adds a java.beans listener which is notified when any property of the current part changes.
+     * 
+     * This is slower than addChangeListener, because each change is boxed into a new PropertyChangeEvent.
+     * 
+     * @param listener The listener to add.
+     * @throws NullPointerException The listener is null.
+     */
+    public final void addPropertyChangeListener(PropertyChangeListener listener) throws NullPointerException {
+        addChangeListener(new ItemChangeListeners.PropertyChangeAdapter(null, listener));
+    }
+    
+    /**
+     * Adds a java.beans listener which is notified when a specific property of the current part changes.
+     * 
+     * @param propertyName The name of the property, which is one of the PROP_ constants in ModelHelper.
+     * @param listener The listener to add.
+     * @throws NullPointerException The listener is null.
+     */
+    public final void addPropertyChangeListener(String propertyName, PropertyChangeListener listener) throws NullPointerException {
+        addChangeListener(new ItemChangeListeners.PropertyChangeAdapter(propertyName, listener));
+    }
+    
+    /**
+     * Removes a java.beans listener that was added with addPropertyChangeListener(PropertyChangeListener).
+     * 
+     * @param listener The listener to remove.
+     */
+    public final void removePropertyChangeListener(PropertyChangeListener listener) {
+        if (listener != null)
+            removeChangeListener(new ItemChangeListeners.PropertyChangeAdapter(null, listener));
+    }
+    
+    /**
+     * Removes a java.beans listener that was added with addPropertyChangeListener(String, PropertyChangeListener).
+     * 
+     * @param propertyName The name of the property that the listener was added for.
+     * @param listener The listener to remove.
+     */
+    public final void removePropertyChangeListener(String propertyName, PropertyChangeListener listener) {
+        if (listener != null)
+            removeChangeListener(new ItemChangeListeners.PropertyChangeAdapter(propertyName, listener));
+    }
+    
+    /**
+     * Gets the JavaFX property for the unique identifier of the current part, which is updated when the identifier changes.
+     * 
+     * @return The read-only unique identifier property.
+     */
+    public final ReadOnlyIntegerProperty idProperty() { return getProperties().getId().getReadOnlyProperty(); }
+    
+    /**
+     * Gets the JavaFX property for the name of the current part, which is updated when the name changes.
+     * 
+     * @return The read-only name property.
+     */
+    public final ReadOnlyStringProperty nameProperty() { return getProperties().getName().getReadOnlyProperty(); }
+    
+    /**
+     * Gets the JavaFX property for the number of parts in stock, which is updated when the stock level changes.
+     * 
+     * @return The read-only stock property.
+     */
+    public final ReadOnlyIntegerProperty stockProperty() { return getProperties().getStock().getReadOnlyProperty(); }
+    
+    /**
+     * Gets the JavaFX property for the price of the current part, which is updated when the price changes.
+     * 
+     * @return The read-only price property.
+     */
+    public final ReadOnlyDoubleProperty priceProperty() { return getProperties().getPrice().getReadOnlyProperty(); }
+    
+    private synchronized ItemProperties getProperties() {
+        if (properties == null) {
+            // Most items are never shown in a table, so they don't pay for the properties or their listener.
+            properties = new ItemProperties(this, getId(), getName(), getStock(), getPrice());
+            addChangeListener(properties);
+        }
+        return properties;
+    }
+    
+    /**
+     * Notifies listeners that an integer property has changed. Nothing is allocated if there are no listeners.
+     * 
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
+     */
+    protected final void fireIntChanged(String propertyName, int oldValue, int newValue) {
+        ItemChangeListener<? super Part>[] listeners = changeListeners;
+        if (listeners == null || oldValue == newValue)
+            return;
+        for (ItemChangeListener<? super Part> listener : listeners)
+            listener.intChanged(this, propertyName, oldValue, newValue);
+    }
+    
+    /**
+     * Notifies listeners that a floating-point property has changed. Nothing is allocated if there are no listeners.
+     * 
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
+     */
+    protected final void fireDoubleChanged(String propertyName, double oldValue, double newValue) {
+        ItemChangeListener<? super Part>[] listeners = changeListeners;
+        if (listeners == null || Double.doubleToLongBits(oldValue) == Double.doubleToLongBits(newValue))
+            return;
+        for (ItemChangeListener<? super Part> listener : listeners)
+            listener.doubleChanged(this, propertyName, oldValue, newValue);
+    }
+    
+    /**
+     * Notifies listeners that an object property has changed. Nothing is allocated if there are no listeners.
+     * 
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
+     */
+    protected final void fireObjectChanged(String propertyName, Object oldValue, Object newValue) {
+        ItemChangeListener<? super Part>[] listeners = changeListeners;
+        if (listeners == null || (oldValue != null && oldValue.equals(newValue)))
+            return;
+        for (ItemChangeListener<? super Part> listener : listeners)
+            listener.objectChanged(this, propertyName, oldValue, newValue);
+    }
 }
@@ -0,0 +1,142 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Base class for alternate storage of the field values of Part objects.
+ *
+ * Each stored part is addressed by a dense slot number from 0 to size() - 1. When a part is removed, the part in the last slot is moved into
+ * its place, so whole-catalogue scans never have to skip over empty slots. While a Part is attached to a store, its getters and setters read
+ * and write the store rather than its own fields.
+ *
+ * @author Leonard T. Erwine
+ */
+abstract class PartStore {
+    private Part[] owners;
+    private int size = 0;
+
+    /**
+     * Initializes a new part store.
+     *
+     * @param initialCapacity The number of slots to allocate initially.
+     */
+    protected PartStore(int initialCapacity) { owners = new Part[Math.max(initialCapacity, 16)]; }
+
+    /**
+     * Gets the number of parts in the store.
+     *
+     * @return The number of occupied slots.
+     */
+    final int size() { return size; }
+
+    /**
+     * Gets the part that occupies a slot.
+     *
+     * @param slot The slot number.
+     * @return The part that occupies the slot.
+     */
+    final Part getOwner(int slot) { return owners[slot]; }
+
+    /**
+     * Copies the current field values of a part into a new slot.
+     *
+     * @param part The part to be stored. This should not yet be attached to any store.
+     * @return The slot number where the part's values were stored.
+     */
+    final int add(Part part) {
+        if (size == owners.length) {
+            int capacity = size << 1;
+            owners = Arrays.copyOf(owners, capacity);
+            growTo(capacity);
+        }
+        int slot = size++;
+        owners[slot] = part;
+        setId(slot, part.getId());
+        setName(slot, part.getName());
+        setPrice(slot, part.getPrice());
+        setStock(slot, part.getStock());
+        setMin(slot, part.getMin());
+        setMax(slot, part.getMax());
+        if (part instanceof InHouse)
+            setMachineId(slot, ((InHouse)part).getMachineId());
+        else if (part instanceof Outsourced)
+            setCompanyName(slot, ((Outsourced)part).getCompanyName());
+        return slot;
+    }
+
+    /**
+     * Frees a slot, moving the part from the last slot into it.
+     *
+     * @param slot The slot to free.
+     */
+    final void remove(int slot) {
+        releaseSlot(slot);
+        int last = --size;
+        if (slot != last) {
+            copySlot(last, slot);
+            Part moved = owners[last];
+            owners[slot] = moved;
+            moved.setStoreSlot(slot);
+        }
+        owners[last] = null;
+        clearSlot(last);
+    }
+
+    /**
+     * Gets the total value of all stored parts (price multiplied by stock).
+     *
+     * @return The sum of price times stock for all stored parts.
+     */
+    double getTotalValue() {
+        double total = 0.0;
+        for (int slot = 0; slot < size; slot++)
+            total += getPrice(slot) * getStock(slot);
+        return total;
+    }
+
+    /**
+     * Resizes all storage so it can hold a specified number of slots.
+     *
+     * @param capacity The new number of slots.
+     */
+    protected abstract void growTo(int capacity);
+
+    /**
+     * Copies all values from one slot to another.
+     *
+     * @param fromSlot The slot to copy from.
+     * @param toSlot The slot to copy to.
+     */
+    protected abstract void copySlot(int fromSlot, int toSlot);
+
+    /**
+     * Releases any resources owned by the values of a slot whose part is being removed, before the slot is overwritten or cleared.
+     *
+     * @param slot The slot whose part is being removed.
+     */
+    protected void releaseSlot(int slot) { }
+
+    /**
+     * Clears a slot that is no longer in use. Its values may have already been copied to another slot.
+     *
+     * @param slot The slot that was freed.
+     */
+    protected abstract void clearSlot(int slot);
+
+    abstract int getId(int slot);
+    abstract void setId(int slot, int value);
+    abstract String getName(int slot);
+    abstract void setName(int slot, String value);
+    abstract double getPrice(int slot);
+    abstract void setPrice(int slot, double value);
+    abstract int getStock(int slot);
+    abstract void setStock(int slot, int value);
+    abstract int getMin(int slot);
+    abstract void setMin(int slot, int value);
+    abstract int getMax(int slot);
+    abstract void setMax(int slot, int value);
+    abstract int getMachineId(int slot);
+    abstract void setMachineId(int slot, int value);
+    abstract String getCompanyName(int slot);
+    abstract void setCompanyName(int slot, String value);
+}
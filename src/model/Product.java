@@ -1,9 +1,14 @@
 package model;
 
-import java.beans.PropertyChangeSupport;
+import java.beans.PropertyChangeListener;
 import java.security.InvalidKeyException;
 import java.security.InvalidParameterException;
+import java.util.LinkedHashSet;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
 /**
@@ -19,6 +24,11 @@ public class Product /*implements InventoryItemModel*/ {
     private int min;
     private int max;
     private final ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    private double partPriceSum = 0.0;
+    // Only allocated when the first listener is added.
+    private volatile ItemChangeListener<? super Product>[] changeListeners = null;
+    // Only created when one of the JavaFX property accessors is first called.
+    private ItemProperties properties = null;
     
     /**
      * Creates a new object to represent a Product.
@@ -47,12 +57,19 @@ public class Product /*implements InventoryItemModel*/ {
         this.stock = stock;
         if (min < 0)
             throw new InvalidParameterException("Minimum inventory level cannot be less than zero.");
-        this.min = 0;
+        this.min = min;
         if (max < 0)
             throw new InvalidParameterException("Maximum inventory level cannot be less than zero.");
         if (max <= min)
             throw new InvalidParameterException("Maximum inventory must be greater than the minimum inventory level.");
         this.max = max;
+        associatedParts.addListener((ListChangeListener.Change<? extends Part> change) -> {
+            // Keep the sum of part prices current, regardless of how the list is modified. It is added up again rather than adjusted, so
+            // rounding errors don't build up over many changes.
+            refreshPartPriceSum();
+            // Let the inventory keep its part-to-product index current as well.
+            Inventory.onAssociatedPartsChanged(this, change);
+        });
     }
 
     /**
@@ -74,7 +91,7 @@ public class Product /*implements InventoryItemModel*/ {
         // Ensure that the id is unique and valid.
         ModelHelper.assertValidIdChange(this, id);
         this.id = id;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_ID, oldId, id);
+        fireIntChanged(ModelHelper.PROP_ID, oldId, id);
     }
     
     /**
@@ -90,6 +107,7 @@ public class Product /*implements InventoryItemModel*/ {
      * @param name The new name of the product.
      * @throws NullPointerException Name is null.
      * @throws java.security.InvalidParameterException Name is empty.
+     * @throws javax.management.openmbean.KeyAlreadyExistsException Unique product names are required and another product already uses that name.
      */
     public void setName(String name) {
         if (name == null)
@@ -99,8 +117,10 @@ public class Product /*implements InventoryItemModel*/ {
         String oldName = this.name;
         if (name.equals(oldName))
             return;
+        // Ensure that the name is unique, if required.
+        ModelHelper.assertValidNameChange(this, name);
         this.name = name;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_NAME, oldName, name);
+        fireObjectChanged(ModelHelper.PROP_NAME, oldName, name);
     }
     
     /**
@@ -124,7 +144,7 @@ public class Product /*implements InventoryItemModel*/ {
             throw new InvalidParameterException("Price cannot be less than zero.");
             
         this.price = price;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_PRICE, oldPrice, price);
+        fireDoubleChanged(ModelHelper.PROP_PRICE, oldPrice, price);
     }
     
     /**
@@ -141,9 +161,30 @@ public class Product /*implements InventoryItemModel*/ {
      * @throws java.security.InvalidParameterException Value is less than zero.
      */
     public void setStock(int stock) {
-        int oldStock = this.stock;
-        this.stock = stock;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_STOCK, oldStock, stock);
+        int oldStock;
+        synchronized (this) {
+            oldStock = this.stock;
+            this.stock = stock;
+        }
+        fireIntChanged(ModelHelper.PROP_STOCK, oldStock, stock);
+    }
+    
+    /**
+     * Adds to the number of products currently in stock as a single atomic operation, without notifying listeners.
+     * 
+     * @param delta The number of products to add to the stock. This can be negative to remove products from stock.
+     * @return The number of products that were in stock before the change.
+     * @throws InvalidParameterException The new stock level would be less than zero or greater than getMax().
+     */
+    final synchronized int adjustStock(int delta) throws InvalidParameterException {
+        int oldStock = stock;
+        long newStock = (long)oldStock + delta;
+        if (newStock < 0)
+            throw new InvalidParameterException("Inventory (stock) cannot be less than zero.");
+        if (newStock > max)
+            throw new InvalidParameterException("Inventory (stock) cannot be greater than the maximum stock level.");
+        stock = (int)newStock;
+        return oldStock;
     }
     
     /**
@@ -168,7 +209,7 @@ public class Product /*implements InventoryItemModel*/ {
         if (min >= this.max)
             throw new InvalidParameterException("Minimum stock level must be less than the maximum stock level.");
         this.min = min;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MIN, oldMin, min);
+        fireIntChanged(ModelHelper.PROP_MIN, oldMin, min);
     }
     
     /**
@@ -191,7 +232,7 @@ public class Product /*implements InventoryItemModel*/ {
         if (max <= this.min)
             throw new InvalidParameterException("Maximum stock level must be greater than the maximum stock level.");
         this.max = max;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MAX, oldMax, max);
+        fireIntChanged(ModelHelper.PROP_MAX, oldMax, max);
     }
     
     /**
@@ -213,12 +254,12 @@ public class Product /*implements InventoryItemModel*/ {
                 return;
         } else {
             this.min = min;
-            propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MIN, oldMin, min);
+            fireIntChanged(ModelHelper.PROP_MIN, oldMin, min);
             if (oldMax == max)
                 return;
         }
         this.max = max;
-        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_MAX, oldMax, max);
+        fireIntChanged(ModelHelper.PROP_MAX, oldMax, max);
     }
     
     /**
@@ -254,6 +295,21 @@ public class Product /*implements InventoryItemModel*/ {
      */
     public ObservableList<Part> getAllAssociatedParts() { return associatedParts; }
 
+    /**
+     * Gets the sum of the prices of all parts associated with the current product.
+     * 
+     * This is maintained as parts are associated or disassociated, and as the prices of associated parts change while the product is in the
+     * inventory, so it does not have to be re-calculated each time it is needed.
+     * 
+     * @return The sum of the prices of all associated parts.
+     */
+    public double getPartPriceSum() { return partPriceSum; }
+    
+    /**
+     * Re-calculates the sum of the prices of all associated parts.
+     */
+    void refreshPartPriceSum() { partPriceSum = ModelHelper.getPriceSum(associatedParts); }
+    
     /**
      * Refreshes the list of Parts associated with the current product.
      * 
@@ -261,9 +317,20 @@ public class Product /*implements InventoryItemModel*/ {
      * @param parts The Parts to be associated with the current Product.
      */
     public void setAllAssociatedParts(Iterable<Part> parts) {
-        associatedParts.clear();
-        for (Part p : parts)
-            addAssociatedPart(p);
+        // Duplicates are found with a hash set and the list is replaced in a single change, so that products with thousands of parts are
+        // updated without comparing every part to every other part.
+        LinkedHashSet<Part> newParts = new LinkedHashSet<>();
+        for (Part p : parts) {
+            if (p == null)
+                throw new NullPointerException();
+            newParts.add(p);
+        }
+        for (Part p : newParts) {
+            // Make sure it exists in the 'all parts' list beforehand.
+            if (!ModelHelper.isPartAdded(p))
+                Inventory.addPart(p);
+        }
+        associatedParts.setAll(newParts);
     }
     /**
      *Ensures product has a valid unique identifier before it's added to the allProducts list.
@@ -272,28 +339,167 @@ public class Product /*implements InventoryItemModel*/ {
         if (ModelHelper.isProductAdded(this))
             return;
         int oldId = getId();
-        if (oldId < 0 || Inventory.lookupProduct(oldId) != null) {
-            ObservableList<Product> allProducts = Inventory.getAllProducts();
-            int nextId = allProducts.size();
-            if (Inventory.lookupProduct(nextId) != null)
-            {
-                for (int i = 0; i < nextId; i++) {
-                    if (Inventory.lookupProduct(i) != null) {
-                        id = i;
-                        propertyChangeSupport.firePropertyChange(ModelHelper.PROP_ID, oldId, i);
-                        return;
-                    }
-                }
-                // this would probably never happen, but just in case...
-                do { nextId++; } while (Inventory.lookupProduct(nextId) != null);
-            }
-            id = nextId;
-            propertyChangeSupport.firePropertyChange(ModelHelper.PROP_ID, oldId, nextId);
+        if (oldId < 0 || Inventory.lookupProduct(oldId) != null)
+            assignId(Inventory.nextProductId());
+    }
+    
+    /**
+     * Sets the unique identifier for a product that is not yet in the allProducts list, without validating it.
+     * 
+     * @param newId The new unique identifier, which the caller has already determined is not in use.
+     */
+    final void assignId(int newId) {
+        int oldId = id;
+        id = newId;
+        fireIntChanged(ModelHelper.PROP_ID, oldId, newId);
+    }
+    
+    /**
+     * Adds a listener which is notified when a property of the current product changes.
+     * 
+     * @param listener The listener to add.
+     * @throws NullPointerException The listener is null.
+     */
+    public final void addChangeListener(ItemChangeListener<? super Product> listener) throws NullPointerException {
+        synchronized (this) {
+            changeListeners = ItemChangeListeners.add(changeListeners, listener);
+        }
+    }
+    
+    /**
+     * Removes a listener that was added with addChangeListener.
+     * 
+     * @param listener The listener to remove.
+     */
+    public final void removeChangeListener(ItemChangeListener<? super Product> listener) {
+        synchronized (this) {
+            changeListeners = ItemChangeListeners.remove(changeListeners, listener);
+        }
+    }
+    
+    /**
+     * Adds a java.beans listener which is notified when any property of the current product changes.
+     * 
+     * This is slower than addChangeListener, because each change is boxed into a new PropertyChangeEvent.
+     * 
+     * @param listener The listener to add.
+     * @throws NullPointerException The listener is null.
+     */
+    public final void addPropertyChangeListener(PropertyChangeListener listener) throws NullPointerException {
+        addChangeListener(new ItemChangeListeners.PropertyChangeAdapter(null, listener));
+    }
+    
+    /**
+     * Adds a java.beans listener which is notified when a specific property of the current product changes.
+     * 
+     * @param propertyName The name of the property, which is one of the PROP_ constants in ModelHelper.
+     * @param listener The listener to add.
+     * @throws NullPointerException The listener is null.
+     */
+    public final void addPropertyChangeListener(String propertyName, PropertyChangeListener listener) throws NullPointerException {
+        addChangeListener(new ItemChangeListeners.PropertyChangeAdapter(propertyName, listener));
+    }
+    
+    /**
+     * Removes a java.beans listener that was added with addPropertyChangeListener(PropertyChangeListener).
+     * 
+     * @param listener The listener to remove.
+     */
+    public final void removePropertyChangeListener(PropertyChangeListener listener) {
+        if (listener != null)
+            removeChangeListener(new ItemChangeListeners.PropertyChangeAdapter(null, listener));
+    }
+    
+    /**
+     * Removes a java.beans listener that was added with addPropertyChangeListener(String, PropertyChangeListener).
+     * 
+     * @param propertyName The name of the property that the listener was added for.
+     * @param listener The listener to remove.
+     */
+    public final void removePropertyChangeListener(String propertyName, PropertyChangeListener listener) {
+        if (listener != null)
+            removeChangeListener(new ItemChangeListeners.PropertyChangeAdapter(propertyName, listener));
+    }
+    
+    /**
+     * Gets the JavaFX property for the unique identifier of the current product, which is updated when the identifier changes.
+     * 
+     * @return The read-only unique identifier property.
+     */
+    public final ReadOnlyIntegerProperty idProperty() { return getProperties().getId().getReadOnlyProperty(); }
+    
+    /**
+     * Gets the JavaFX property for the name of the current product, which is updated when the name changes.
+     * 
+     * @return The read-only name property.
+     */
+    public final ReadOnlyStringProperty nameProperty() { return getProperties().getName().getReadOnlyProperty(); }
+    
+    /**
+     * Gets the JavaFX property for the number of products in stock, which is updated when the stock level changes.
+     * 
+     * @return The read-only stock property.
+     */
+    public final ReadOnlyIntegerProperty stockProperty() { return getProperties().getStock().getReadOnlyProperty(); }
+    
+    /**
+     * Gets the JavaFX property for the price of the current product, which is updated when the price changes.
+     * 
+     * @return The read-only price property.
+     */
+    public final ReadOnlyDoubleProperty priceProperty() { return getProperties().getPrice().getReadOnlyProperty(); }
+    
+    private synchronized ItemProperties getProperties() {
+        if (properties == null) {
+            // Most items are never shown in a table, so they don't pay for the properties or their listener.
+            properties = new ItemProperties(this, getId(), getName(), getStock(), getPrice());
+            addChangeListener(properties);
         }
+        return properties;
+    }
+    
+    /**
+     * Notifies listeners that an integer property has changed. Nothing is allocated if there are no listeners.
+     * 
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
+     */
+    protected final void fireIntChanged(String propertyName, int oldValue, int newValue) {
+        ItemChangeListener<? super Product>[] listeners = changeListeners;
+        if (listeners == null || oldValue == newValue)
+            return;
+        for (ItemChangeListener<? super Product> listener : listeners)
+            listener.intChanged(this, propertyName, oldValue, newValue);
     }
     
     /**
-     * Allows for more efficient detection of property value changes.
+     * Notifies listeners that a floating-point property has changed. Nothing is allocated if there are no listeners.
+     * 
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
      */
-    public final transient PropertyChangeSupport propertyChangeSupport = new java.beans.PropertyChangeSupport(this);
+    protected final void fireDoubleChanged(String propertyName, double oldValue, double newValue) {
+        ItemChangeListener<? super Product>[] listeners = changeListeners;
+        if (listeners == null || Double.doubleToLongBits(oldValue) == Double.doubleToLongBits(newValue))
+            return;
+        for (ItemChangeListener<? super Product> listener : listeners)
+            listener.doubleChanged(this, propertyName, oldValue, newValue);
+    }
+    
+    /**
+     * Notifies listeners that an object property has changed. Nothing is allocated if there are no listeners.
+     * 
+     * @param propertyName The name of the property.
+     * @param oldValue The previous value.
+     * @param newValue The new value.
+     */
+    protected final void fireObjectChanged(String propertyName, Object oldValue, Object newValue) {
+        ItemChangeListener<? super Product>[] listeners = changeListeners;
+        if (listeners == null || (oldValue != null && oldValue.equals(newValue)))
+            return;
+        for (ItemChangeListener<? super Product> listener : listeners)
+            listener.objectChanged(this, propertyName, oldValue, newValue);
+    }
 }
@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * Receives notifications when the stock level of an inventory item crosses its minimum stock level.
+ *
+ * @author Leonard T. Erwine
+ * @param <T> Type of inventory item.
+ */
+@FunctionalInterface
+public interface ReorderThresholdListener<T> {
+    /**
+     * Called when the stock level of an item falls to or below its minimum, or rises back above it.
+     *
+     * @param item The item whose stock level or minimum stock level has changed.
+     * @param needsReorder True if the stock level is now at or below the minimum; otherwise, false.
+     */
+    void thresholdCrossed(T item, boolean needsReorder);
+}
@@ -0,0 +1,157 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToIntFunction;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Tracks the inventory items whose stock level is at or below their minimum stock level.
+ *
+ * The items are kept in a list that is ordered by how far the stock level is below the minimum (largest shortfall first, then in the order
+ * they started needing to be re-ordered). Each item is re-positioned as its own values change, so the list never has to be rebuilt by scanning
+ * the whole inventory.
+ *
+ * @author Leonard T. Erwine
+ * @param <T> Type of inventory item.
+ */
+class ReorderWatch<T> {
+    private final ToIntFunction<T> getStock;
+    private final ToIntFunction<T> getMin;
+    private final HashMap<T, Entry> entries = new HashMap<>();
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+    private final ObservableList<T> readOnlyItems = FXCollections.unmodifiableObservableList(items);
+    private final CopyOnWriteArrayList<ReorderThresholdListener<? super T>> listeners = new CopyOnWriteArrayList<>();
+    private long nextSequence = 0L;
+
+    /**
+     * Creates a new empty watch list.
+     *
+     * @param getStock Gets the stock level of an item.
+     * @param getMin Gets the minimum stock level of an item.
+     */
+    ReorderWatch(ToIntFunction<T> getStock, ToIntFunction<T> getMin) {
+        this.getStock = getStock;
+        this.getMin = getMin;
+    }
+
+    /**
+     * Gets the items that need to be re-ordered, with the largest shortfall first.
+     *
+     * @return An unmodifiable observable list of items.
+     */
+    ObservableList<T> getItems() { return readOnlyItems; }
+
+    /**
+     * Gets a copy of the items that need to be re-ordered, with the largest shortfall first.
+     *
+     * @return A new list of items.
+     */
+    synchronized List<T> toList() { return new ArrayList<>(items); }
+
+    void addListener(ReorderThresholdListener<? super T> listener) { listeners.add(listener); }
+
+    void removeListener(ReorderThresholdListener<? super T> listener) { listeners.remove(listener); }
+
+    /**
+     * Starts tracking an item which has been added to the inventory. Threshold listeners are not notified.
+     *
+     * @param item The item to track.
+     */
+    synchronized void add(T item) {
+        int stock = getStock.applyAsInt(item);
+        int min = getMin.applyAsInt(item);
+        if (stock <= min && !entries.containsKey(item))
+            insert(item, new Entry((long)min - stock, nextSequence++));
+    }
+
+    /**
+     * Stops tracking an item which has been removed from the inventory. Threshold listeners are not notified.
+     *
+     * @param item The item to stop tracking.
+     */
+    synchronized void remove(T item) {
+        Entry entry = entries.get(item);
+        if (entry == null)
+            return;
+        items.remove(indexOf(entry));
+        entries.remove(item);
+    }
+
+    /**
+     * Re-evaluates an item after its stock level or minimum stock level has changed, notifying threshold listeners if it has started or
+     * stopped needing to be re-ordered.
+     *
+     * @param item The item that has changed.
+     */
+    void update(T item) {
+        boolean needsReorder;
+        synchronized (this) {
+            int stock = getStock.applyAsInt(item);
+            int min = getMin.applyAsInt(item);
+            long shortfall = (long)min - stock;
+            needsReorder = stock <= min;
+            Entry entry = entries.get(item);
+            if (entry == null) {
+                if (!needsReorder)
+                    return;
+                insert(item, new Entry(shortfall, nextSequence++));
+            } else {
+                if (needsReorder && entry.shortfall == shortfall)
+                    return;
+                items.remove(indexOf(entry));
+                if (needsReorder) {
+                    entry.shortfall = shortfall;
+                    items.add(insertionPointOf(entry), item);
+                    return;
+                }
+                entries.remove(item);
+            }
+        }
+        for (ReorderThresholdListener<? super T> listener : listeners)
+            listener.thresholdCrossed(item, needsReorder);
+    }
+
+    private void insert(T item, Entry entry) {
+        entries.put(item, entry);
+        items.add(insertionPointOf(entry), item);
+    }
+
+    private int insertionPointOf(Entry entry) {
+        int low = 0;
+        int high = items.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(items.get(mid)).compareTo(entry) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private int indexOf(Entry entry) {
+        // Entries are unique, because no two have the same sequence number.
+        return insertionPointOf(entry);
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private long shortfall;
+        private final long sequence;
+
+        Entry(long shortfall, long sequence) {
+            this.shortfall = shortfall;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (shortfall != other.shortfall)
+                return (shortfall > other.shortfall) ? -1 : 1;
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
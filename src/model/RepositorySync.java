@@ -0,0 +1,161 @@
+package model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.collections.ListChangeListener;
+
+/**
+ * Writes every change to the inventory to an InventoryRepository.
+ *
+ * Changes are passed to the repository as they are made, on the thread that made them and while holding the inventory write lock, so the
+ * repository must only queue them and send them to storage on its own thread. A change that the repository won't accept is logged.
+ *
+ * @author Leonard T. Erwine
+ */
+final class RepositorySync {
+    private static final Logger LOG = Logger.getLogger(RepositorySync.class.getName());
+
+    private final InventoryRepository repository;
+    private final IdentityHashMap<Product, ListChangeListener<Part>> associationListeners = new IdentityHashMap<>();
+
+    private final ItemChangeListener<Part> partChangeListener = new ItemChangeListener<Part>() {
+        @Override
+        public void intChanged(Part part, String propertyName, int oldValue, int newValue) {
+            writePart(part);
+            if (ModelHelper.PROP_ID.equals(propertyName)) {
+                deletePart(oldValue);
+                // The products that use the part refer to it by its identifier.
+                for (Product product : Inventory.getAssociatedProducts(part))
+                    writeProduct(product);
+            }
+        }
+
+        @Override
+        public void changed(Part part, String propertyName) { writePart(part); }
+    };
+
+    private final ItemChangeListener<Product> productChangeListener = new ItemChangeListener<Product>() {
+        @Override
+        public void intChanged(Product product, String propertyName, int oldValue, int newValue) {
+            writeProduct(product);
+            if (ModelHelper.PROP_ID.equals(propertyName))
+                deleteProduct(oldValue);
+        }
+
+        @Override
+        public void changed(Product product, String propertyName) { writeProduct(product); }
+    };
+
+    private final ListChangeListener<Part> allPartsListener = (ListChangeListener.Change<? extends Part> change) -> {
+        while (change.next()) {
+            if (change.wasPermutated())
+                continue;
+            for (Part part : change.getRemoved()) {
+                part.removeChangeListener(partChangeListener);
+                deletePart(part.getId());
+            }
+            for (Part part : change.getAddedSubList()) {
+                writePart(part);
+                part.addChangeListener(partChangeListener);
+            }
+        }
+    };
+
+    private final ListChangeListener<Product> allProductsListener = (ListChangeListener.Change<? extends Product> change) -> {
+        while (change.next()) {
+            if (change.wasPermutated())
+                continue;
+            for (Product product : change.getRemoved()) {
+                stopWatching(product);
+                deleteProduct(product.getId());
+            }
+            for (Product product : change.getAddedSubList()) {
+                writeProduct(product);
+                startWatching(product);
+            }
+        }
+    };
+
+    /**
+     * Starts writing changes to a repository. This must be called while holding the inventory write lock.
+     *
+     * @param repository The repository to write changes to.
+     */
+    RepositorySync(InventoryRepository repository) {
+        this.repository = repository;
+        for (Part part : Inventory.getAllParts())
+            part.addChangeListener(partChangeListener);
+        for (Product product : Inventory.getAllProducts())
+            startWatching(product);
+        Inventory.getAllParts().addListener(allPartsListener);
+        Inventory.getAllProducts().addListener(allProductsListener);
+    }
+
+    InventoryRepository getRepository() { return repository; }
+
+    /**
+     * Stops writing changes to the repository, and flushes the changes it is holding. This must be called while holding the inventory write
+     * lock.
+     *
+     * @throws IOException The repository could not be flushed.
+     */
+    void stop() throws IOException {
+        Inventory.getAllParts().removeListener(allPartsListener);
+        Inventory.getAllProducts().removeListener(allProductsListener);
+        for (Part part : Inventory.getAllParts())
+            part.removeChangeListener(partChangeListener);
+        for (Product product : new ArrayList<>(associationListeners.keySet()))
+            stopWatching(product);
+        repository.flush();
+    }
+
+    private void startWatching(Product product) {
+        // Associations are stored with the product, so any change to them re-writes the product.
+        ListChangeListener<Part> listener = (ListChangeListener.Change<? extends Part> change) -> writeProduct(product);
+        associationListeners.put(product, listener);
+        product.getAllAssociatedParts().addListener(listener);
+        product.addChangeListener(productChangeListener);
+    }
+
+    private void stopWatching(Product product) {
+        ListChangeListener<Part> listener = associationListeners.remove(product);
+        if (listener != null)
+            product.getAllAssociatedParts().removeListener(listener);
+        product.removeChangeListener(productChangeListener);
+    }
+
+    private void writePart(Part part) {
+        try {
+            repository.putPart(part);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to write part to the inventory repository.", ex);
+        }
+    }
+
+    private void deletePart(int id) {
+        try {
+            repository.deletePart(id);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to delete part from the inventory repository.", ex);
+        }
+    }
+
+    private void writeProduct(Product product) {
+        try {
+            repository.putProduct(product);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to write product to the inventory repository.", ex);
+        }
+    }
+
+    private void deleteProduct(int id) {
+        try {
+            repository.deleteProduct(id);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to delete product from the inventory repository.", ex);
+        }
+    }
+}
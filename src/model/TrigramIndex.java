@@ -0,0 +1,223 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Substring search index over the normalized (trimmed and case-folded) names of inventory items.
+ *
+ * Each item is given a dense document number, and each 3-character sequence (trigram) of a name maps to a sorted list of the documents that
+ * contain it. A substring query intersects the lists for the trigrams of the search text, then confirms the remaining candidates against the
+ * stored normalized names, so no strings are allocated per item while searching. Search text shorter than 3 characters is matched by
+ * checking each stored name.
+ *
+ * @author Leonard T. Erwine
+ * @param <T> Type of item being indexed.
+ */
+class TrigramIndex<T> {
+    private final IntHashMap<PostingList> postings = new IntHashMap<>();
+    private final HashMap<T, Integer> documents = new HashMap<>();
+    private Object[] items = new Object[16];
+    private String[] keys = new String[16];
+    private int documentCount = 0;
+    private int[] freeDocuments = new int[16];
+    private int freeCount = 0;
+
+    /**
+     * Gets the key for the trigram at a position in a string.
+     *
+     * Characters below 1024 are packed exactly; anything else is hashed. A hash collision only adds candidates, which are filtered out when
+     * they are confirmed against the stored name.
+     */
+    private static int trigramAt(String s, int i) {
+        char a = s.charAt(i), b = s.charAt(i + 1), c = s.charAt(i + 2);
+        if ((a | b | c) < 1024)
+            return (a << 20) | (b << 10) | c;
+        return ((a * 31 + b) * 31 + c) | 0x40000000;
+    }
+
+    /**
+     * Adds an item to the index.
+     *
+     * @param item The item to add.
+     * @param name The name of the item.
+     */
+    void add(T item, String name) {
+        if (documents.containsKey(item))
+            return;
+        int doc;
+        if (freeCount > 0)
+            doc = freeDocuments[--freeCount];
+        else {
+            if (documentCount == items.length) {
+                items = Arrays.copyOf(items, documentCount << 1);
+                keys = Arrays.copyOf(keys, documentCount << 1);
+            }
+            doc = documentCount++;
+        }
+        String key = NameIndex.toKey(name);
+        items[doc] = item;
+        keys[doc] = key;
+        documents.put(item, doc);
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            int trigram = trigramAt(key, i);
+            PostingList list = postings.get(trigram);
+            if (list == null)
+                postings.put(trigram, list = new PostingList());
+            list.add(doc);
+        }
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param item The item to remove.
+     */
+    void remove(T item) {
+        Integer doc = documents.remove(item);
+        if (doc == null)
+            return;
+        removePostings(doc, keys[doc]);
+        items[doc] = null;
+        keys[doc] = null;
+        if (freeCount == freeDocuments.length)
+            freeDocuments = Arrays.copyOf(freeDocuments, freeCount << 1);
+        freeDocuments[freeCount++] = doc;
+    }
+
+    /**
+     * Updates the index after an item has been renamed.
+     *
+     * @param item The item that was renamed.
+     * @param name The new name of the item.
+     */
+    void rename(T item, String name) {
+        Integer doc = documents.get(item);
+        if (doc == null)
+            return;
+        String key = NameIndex.toKey(name);
+        if (key.equals(keys[doc]))
+            return;
+        removePostings(doc, keys[doc]);
+        keys[doc] = key;
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            int trigram = trigramAt(key, i);
+            PostingList list = postings.get(trigram);
+            if (list == null)
+                postings.put(trigram, list = new PostingList());
+            list.add(doc);
+        }
+    }
+
+    private void removePostings(int doc, String key) {
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            int trigram = trigramAt(key, i);
+            PostingList list = postings.get(trigram);
+            if (list != null && list.remove(doc) && list.size == 0)
+                postings.remove(trigram);
+        }
+    }
+
+    /**
+     * Removes all items from the index.
+     */
+    void clear() {
+        postings.clear();
+        documents.clear();
+        Arrays.fill(items, 0, documentCount, null);
+        Arrays.fill(keys, 0, documentCount, null);
+        documentCount = 0;
+        freeCount = 0;
+    }
+
+    /**
+     * Gets the items whose names contain the specified text.
+     *
+     * @param text The text to search for (substring, case-insensitive).
+     * @return The matching items, in the order of their document numbers.
+     */
+    @SuppressWarnings("unchecked")
+    List<T> search(String text) {
+        ArrayList<T> result = new ArrayList<>();
+        String key = NameIndex.toKey(text);
+        if (key == null || key.length() == 0)
+            return result;
+        if (key.length() < 3) {
+            for (int doc = 0; doc < documentCount; doc++) {
+                if (keys[doc] != null && keys[doc].contains(key))
+                    result.add((T)items[doc]);
+            }
+            return result;
+        }
+        int count = key.length() - 2;
+        PostingList[] lists = new PostingList[count];
+        for (int i = 0; i < count; i++) {
+            if ((lists[i] = postings.get(trigramAt(key, i))) == null)
+                return result;
+        }
+        // Start with the shortest list, so the candidate set shrinks as fast as possible.
+        Arrays.sort(lists, (PostingList x, PostingList y) -> Integer.compare(x.size, y.size));
+        int[] candidates = Arrays.copyOf(lists[0].docs, lists[0].size);
+        int candidateCount = candidates.length;
+        for (int i = 1; i < count && candidateCount > 0; i++) {
+            if (lists[i] != lists[i - 1])
+                candidateCount = lists[i].retainAll(candidates, candidateCount);
+        }
+        for (int i = 0; i < candidateCount; i++) {
+            int doc = candidates[i];
+            if (keys[doc].contains(key))
+                result.add((T)items[doc]);
+        }
+        return result;
+    }
+
+    /**
+     * Sorted list of document numbers.
+     */
+    private static class PostingList {
+        private int[] docs = new int[4];
+        private int size = 0;
+
+        void add(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i >= 0)
+                return;
+            i = -i - 1;
+            if (size == docs.length)
+                docs = Arrays.copyOf(docs, size << 1);
+            System.arraycopy(docs, i, docs, i + 1, size - i);
+            docs[i] = doc;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i < 0)
+                return false;
+            System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Removes the values from a sorted array which are not in this list.
+         *
+         * @return The number of values left at the start of the array.
+         */
+        int retainAll(int[] values, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int n = 0; n < count && from < size; n++) {
+                int i = Arrays.binarySearch(docs, from, size, values[n]);
+                if (i >= 0) {
+                    values[kept++] = values[n];
+                    from = i + 1;
+                } else
+                    from = -i - 1;
+            }
+            return kept;
+        }
+    }
+}